@@ -0,0 +1,157 @@
+package edu.iastate.cs228.hw3.bench;
+
+/**
+ * Benchmarks FactorizationCodec against Java serialization of the prime and multiplicity arrays,
+ * which is what storing a factorization with ObjectOutputStream amounts to.
+ *
+ *     java -cp bench/classes edu.iastate.cs228.hw3.bench.CodecBenchmarks [-time ms] [-filter regex]
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+import edu.iastate.cs228.hw3.EncodedFactorization;
+import edu.iastate.cs228.hw3.FactorizationCodec;
+import edu.iastate.cs228.hw3.PollardRho;
+import edu.iastate.cs228.hw3.PrimeFactor;
+import edu.iastate.cs228.hw3.PrimeFactorization;
+
+public class CodecBenchmarks
+{
+	public static void main(String[] args)
+	{
+		Harness h = new Harness(args);
+		register(h);
+		printSizes(System.out);
+		h.run(System.out);
+	}
+
+
+	/**
+	 * Prints the average encoded size of a factorization of every input set, with the codec and
+	 * with serialization.
+	 *
+	 * @param out
+	 */
+	public static void printSizes(PrintStream out)
+	{
+		PollardRho rho = new PollardRho();
+		ByteBuffer buffer = ByteBuffer.allocate(1024);
+		out.printf("%-18s %14s %14s%n", "Input", "codec B/item", "serial B/item");
+		for (InputSet set : InputSet.values())
+		{
+			long[] n = set.generate();
+			long codecBytes = 0;
+			long serialBytes = 0;
+			for (long x : n)
+			{
+				PrimeFactorization pf = new PrimeFactorization(x, rho);
+				buffer.clear();
+				codecBytes += FactorizationCodec.encode(pf, buffer);
+				serialBytes += serialize(pf).length;
+			}
+			out.printf("%-18s %14.1f %14.1f%n", set, codecBytes / (double) n.length, serialBytes / (double) n.length);
+		}
+	}
+
+
+	/**
+	 * Adds every benchmark of this class to h.
+	 *
+	 * @param h
+	 */
+	public static void register(Harness h)
+	{
+		PollardRho rho = new PollardRho();
+
+		for (InputSet set : InputSet.values())
+		{
+			long[] n = set.generate();
+			final PrimeFactorization[] pf = new PrimeFactorization[n.length];
+			final int[] offset = new int[n.length];
+			final byte[][] serialized = new byte[n.length][];
+			ByteBuffer encoded = ByteBuffer.allocate(n.length * 64);
+			for (int i = 0; i < n.length; i++)
+			{
+				pf[i] = new PrimeFactorization(n[i], rho);
+				offset[i] = encoded.position();
+				FactorizationCodec.encode(pf[i], encoded);
+				serialized[i] = serialize(pf[i]);
+			}
+
+			final ByteBuffer in = encoded;
+			final ByteBuffer out = ByteBuffer.allocate(1024);
+			final EncodedFactorization view = new EncodedFactorization();
+			String param = set.name();
+
+			h.add("codec.encode", param, n.length, i ->
+			{
+				out.clear();
+				return FactorizationCodec.encode(pf[i], out);
+			});
+			h.add("codec.decode", param, n.length, i ->
+			{
+				in.position(offset[i]);
+				return FactorizationCodec.decode(in).size();
+			});
+			h.add("codec.view.value", param, n.length, i -> view.wrap(in, offset[i]).value());
+			h.add("serial.encode", param, n.length, i -> serialize(pf[i]).length);
+			h.add("serial.decode", param, n.length, i -> deserialize(serialized[i]).size());
+		}
+	}
+
+
+	private static byte[] serialize(PrimeFactorization pf)
+	{
+		PrimeFactor[] factors = pf.toArray();
+		long[] primes = new long[factors.length];
+		int[] multiplicities = new int[factors.length];
+		for (int i = 0; i < factors.length; i++)
+		{
+			primes[i] = factors[i].prime;
+			multiplicities[i] = factors[i].multiplicity;
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes))
+		{
+			out.writeObject(primes);
+			out.writeObject(multiplicities);
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+
+	private static PrimeFactorization deserialize(byte[] serialized)
+	{
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized)))
+		{
+			long[] primes = (long[]) in.readObject();
+			int[] multiplicities = (int[]) in.readObject();
+			PrimeFactor[] factors = new PrimeFactor[primes.length];
+			for (int i = 0; i < primes.length; i++)
+				factors[i] = new PrimeFactor(primes[i], multiplicities[i]);
+			return new PrimeFactorization(factors);
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+		catch (ClassNotFoundException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+}
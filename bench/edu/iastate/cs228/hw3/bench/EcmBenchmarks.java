@@ -0,0 +1,75 @@
+package edu.iastate.cs228.hw3.bench;
+
+/**
+ * Benchmarks the elliptic-curve method against Pollard-Brent rho: Ecm on the InputSets, and
+ * BigEcm on composite Mersenne numbers 2^e - 1, the classic test set for factoring methods.  Both
+ * run their curves on the benchmark thread.  Rho is left out where its smallest factor makes it
+ * take seconds per number.
+ *
+ *     java -cp bench/classes edu.iastate.cs228.hw3.bench.EcmBenchmarks [-time ms] [-filter regex]
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+import java.math.BigInteger;
+
+import edu.iastate.cs228.hw3.BigEcm;
+import edu.iastate.cs228.hw3.BigPollardRho;
+import edu.iastate.cs228.hw3.BigPrimeFactorization;
+import edu.iastate.cs228.hw3.Ecm;
+import edu.iastate.cs228.hw3.PollardRho;
+import edu.iastate.cs228.hw3.PrimeFactorization;
+
+public class EcmBenchmarks
+{
+	/**
+	 * Exponents e of composite 2^e - 1, with the digits of the smallest factor: 9, 13, 10, 9.
+	 */
+	private static final int[] MERSENNE = { 67, 101, 103, 109 };
+
+	/**
+	 * Smallest factor above 10^12, too slow for rho.
+	 */
+	private static final int RHO_LIMIT = 101;
+
+
+	public static void main(String[] args)
+	{
+		Harness h = new Harness(args);
+		register(h);
+		h.run(System.out);
+	}
+
+
+	/**
+	 * Adds every benchmark of this class to h.
+	 *
+	 * @param h
+	 */
+	public static void register(Harness h)
+	{
+		Ecm ecm = new Ecm();
+		PollardRho rho = new PollardRho();
+		for (InputSet set : InputSet.values())
+		{
+			final long[] n = set.generate();
+			String param = set.name();
+			h.add("factor.ecm", param, n.length, i -> new PrimeFactorization(n[i], ecm).size());
+			h.add("factor.pollardRho", param, n.length, i -> new PrimeFactorization(n[i], rho).size());
+		}
+
+		BigEcm bigEcm = new BigEcm(null);
+		BigEcm bigEcmSerial = new BigEcm(2000, 200000, 25, null);
+		BigPollardRho bigRho = new BigPollardRho();
+		for (int e : MERSENNE)
+		{
+			final BigInteger n = BigInteger.ONE.shiftLeft(e).subtract(BigInteger.ONE);
+			String param = "2^" + e + "-1";
+			h.add("big.ecm", param, 1, i -> new BigPrimeFactorization(n, bigEcm).size());
+			h.add("big.ecm.15digits", param, 1, i -> new BigPrimeFactorization(n, bigEcmSerial).size());
+			if (e != RHO_LIMIT)
+				h.add("big.pollardRho", param, 1, i -> new BigPrimeFactorization(n, bigRho).size());
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package edu.iastate.cs228.hw3.bench;
+
+/**
+ * Benchmarks for factoring, primality testing and the list algebra of PrimeFactorization.
+ *
+ * Build and run from the repository root:
+ *
+ *     javac -d bench/classes -sourcepath src:bench bench/edu/iastate/cs228/hw3/bench/*.java
+ *     java -cp bench/classes edu.iastate.cs228.hw3.bench.FactorizationBenchmarks [-time ms] [-filter regex]
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+import edu.iastate.cs228.hw3.BatchFactorizer;
+import edu.iastate.cs228.hw3.FactorizationStrategy;
+import edu.iastate.cs228.hw3.PollardRho;
+import edu.iastate.cs228.hw3.PrimeFactorization;
+import edu.iastate.cs228.hw3.SmallestPrimeFactorTable;
+import edu.iastate.cs228.hw3.TrialDivision;
+
+public class FactorizationBenchmarks
+{
+	private static final int SPF_LIMIT = 100000000;
+
+	private static SmallestPrimeFactorTable spf; 		// built by the first factor.spfTable operation
+
+
+	public static void main(String[] args)
+	{
+		Harness h = new Harness(args);
+		register(h);
+		h.run(System.out);
+		if (spf != null)
+			System.out.println("# " + spf);
+	}
+
+
+	/**
+	 * Adds every benchmark of this class to h.
+	 *
+	 * @param h
+	 */
+	public static void register(Harness h)
+	{
+		FactorizationStrategy trial = new TrialDivision();
+		FactorizationStrategy rho = new PollardRho();
+		BatchFactorizer batch = new BatchFactorizer();
+
+		for (InputSet set : InputSet.values())
+		{
+			final long[] n = set.generate();
+			final PrimeFactorization[] pf = new PrimeFactorization[n.length];
+			for (int i = 0; i < n.length; i++)
+				pf[i] = new PrimeFactorization(n[i], rho);
+			String param = set.name();
+			int mask = n.length - 1;
+
+			// Trial division needs about 10^8 divisions per 62-bit semiprime.
+			if (set != InputSet.SEMIPRIME_62)
+				h.add("factor.trialDivision", param, n.length, i -> new PrimeFactorization(n[i], trial).size());
+			if (set == InputSet.BELOW_10_8)
+				h.add("factor.spfTable", param, n.length, i -> new PrimeFactorization(n[i], spf()).size());
+			h.add("factor.pollardRho", param, n.length, i -> new PrimeFactorization(n[i], rho).size());
+			h.add("factor.default", param, n.length, i -> new PrimeFactorization(n[i]).size());
+			// One operation factors the whole input set on all cores.
+			if (set == InputSet.BELOW_10_8 || set == InputSet.SMOOTH)
+				h.add("batch.default", param, 1, i -> batch.factor(n).length);
+			h.add("isPrime", param, n.length, i -> PrimeFactorization.isPrime(n[i]) ? 1 : 0);
+			h.add("gcd", param, n.length, i -> PrimeFactorization.gcd(pf[i], pf[(i + 1) & mask]).size());
+			h.add("lcm", param, n.length, i -> PrimeFactorization.lcm(pf[i], pf[(i + 1) & mask]).size());
+			h.add("multiply", param, n.length, i -> PrimeFactorization.multiply(pf[i], pf[(i + 1) & mask]).size());
+		}
+	}
+
+
+	/**
+	 * The 10^8 table takes about 100 MB and a second to build, so it is only built when a
+	 * factor.spfTable benchmark runs.
+	 */
+	private static SmallestPrimeFactorTable spf()
+	{
+		if (spf == null)
+			spf = new SmallestPrimeFactorTable(SPF_LIMIT);
+		return spf;
+	}
+}
@@ -0,0 +1,85 @@
+package edu.iastate.cs228.hw3.bench;
+
+/**
+ * Benchmarks for FactorizationFormat.  format.concat reproduces the former toString(), which
+ * built its result with String += in a loop, as the reference point.
+ *
+ *     java -cp bench/classes edu.iastate.cs228.hw3.bench.FormatBenchmarks [-time ms] [-filter regex]
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+import java.nio.ByteBuffer;
+
+import edu.iastate.cs228.hw3.FactorizationFormat;
+import edu.iastate.cs228.hw3.PollardRho;
+import edu.iastate.cs228.hw3.PrimeFactor;
+import edu.iastate.cs228.hw3.PrimeFactorization;
+
+public class FormatBenchmarks
+{
+	public static void main(String[] args)
+	{
+		Harness h = new Harness(args);
+		register(h);
+		h.run(System.out);
+	}
+
+
+	/**
+	 * Adds every benchmark of this class to h.
+	 *
+	 * @param h
+	 */
+	public static void register(Harness h)
+	{
+		PollardRho rho = new PollardRho();
+		final StringBuilder sb = new StringBuilder(1024);
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(1024);
+
+		for (InputSet set : InputSet.values())
+		{
+			long[] n = set.generate();
+			final PrimeFactorization[] pf = new PrimeFactorization[n.length];
+			final String[] text = new String[n.length];
+			for (int i = 0; i < n.length; i++)
+			{
+				pf[i] = new PrimeFactorization(n[i], rho);
+				text[i] = pf[i].toString();
+			}
+			String param = set.name();
+
+			h.add("format.concat", param, n.length, i -> concat(pf[i]).length());
+			h.add("format.toString", param, n.length, i -> pf[i].toString().length());
+			h.add("format.appendTo", param, n.length, i ->
+			{
+				sb.setLength(0);
+				return FactorizationFormat.appendTo(sb, pf[i]).length();
+			});
+			h.add("format.byteBuffer", param, n.length, i ->
+			{
+				buffer.clear();
+				return FactorizationFormat.put(buffer, pf[i]);
+			});
+			h.add("parse", param, n.length, i -> FactorizationFormat.parse(text[i]).size());
+			h.add("parse.unchecked", param, n.length, i -> FactorizationFormat.parse(text[i], 0, text[i].length(), false).size());
+		}
+	}
+
+
+	/**
+	 * The former PrimeFactorization.toString(), with the separators it was missing.
+	 */
+	private static String concat(PrimeFactorization pf)
+	{
+		String out = "";
+		for (PrimeFactor f : pf)
+		{
+			if (!out.isEmpty())
+				out += " * ";
+			out += f.toString();
+		}
+		return out;
+	}
+}
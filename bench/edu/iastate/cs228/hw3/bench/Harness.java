@@ -0,0 +1,143 @@
+package edu.iastate.cs228.hw3.bench;
+
+/**
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+public final class Harness
+{
+	/**
+	 * One benchmarked operation.  run(i) performs the operation on the i-th input and returns
+	 * something derived from the result, so that the JIT cannot drop the work.
+	 */
+	public interface Op
+	{
+		long run(int i);
+	}
+
+
+	private static final int WARMUP_ITERATIONS = 3;
+	private static final int MEASURED_ITERATIONS = 5;
+
+	private final List<String> names = new ArrayList<>();
+	private final List<String> params = new ArrayList<>();
+	private final List<Op> ops = new ArrayList<>();
+	private final List<Integer> sizes = new ArrayList<>();
+
+	private long iterationMillis = 300;
+	private Pattern filter = Pattern.compile(".*");
+
+	private volatile long sink; 		// blackhole for results
+
+
+	/**
+	 * Reads "-time <ms per iteration>" and "-filter <regex on benchmark:param>" from args.
+	 *
+	 * @param args
+	 * @throws IllegalArgumentException on an unknown option
+	 */
+	public Harness(String[] args) throws IllegalArgumentException
+	{
+		for (int i = 0; i < args.length; i++)
+		{
+			if (args[i].equals("-time") && i + 1 < args.length)
+				iterationMillis = Long.parseLong(args[++i]);
+			else if (args[i].equals("-filter") && i + 1 < args.length)
+				filter = Pattern.compile(args[++i]);
+			else
+				throw new IllegalArgumentException("usage: [-time ms] [-filter regex]");
+		}
+	}
+
+
+	/**
+	 * Registers a benchmark.
+	 *
+	 * @param name    benchmark name
+	 * @param param   input class
+	 * @param inputs  number of inputs; run(i) is called with i cycling through [0, inputs)
+	 * @param op
+	 */
+	public void add(String name, String param, int inputs, Op op)
+	{
+		names.add(name);
+		params.add(param);
+		sizes.add(inputs);
+		ops.add(op);
+	}
+
+
+	/**
+	 * Runs the registered benchmarks that match the filter and prints one line per benchmark with
+	 * throughput, average time and allocation per operation.  Every benchmark gets
+	 * WARMUP_ITERATIONS unmeasured and MEASURED_ITERATIONS measured iterations of the configured
+	 * length.
+	 *
+	 * @param out
+	 */
+	public void run(PrintStream out)
+	{
+		ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+		com.sun.management.ThreadMXBean alloc = mx instanceof com.sun.management.ThreadMXBean
+				? (com.sun.management.ThreadMXBean) mx : null;
+		long tid = Thread.currentThread().getId();
+
+		out.printf("%-28s %-18s %14s %14s %12s %12s%n", "Benchmark", "Input", "ops/s", "ns/op", "B/op", "MB/s");
+		for (int b = 0; b < ops.size(); b++)
+		{
+			if (!filter.matcher(names.get(b) + ":" + params.get(b)).find())
+				continue;
+
+			Op op = ops.get(b);
+			int inputs = sizes.get(b);
+			long count = 0;
+			long nanos = 0;
+			long bytes = 0;
+			int next = 0;
+
+			for (int it = 0; it < WARMUP_ITERATIONS + MEASURED_ITERATIONS; it++)
+			{
+				long n = 0;
+				long acc = 0;
+				long bytesBefore = alloc == null ? 0 : alloc.getThreadAllocatedBytes(tid);
+				long start = System.nanoTime();
+				long end = start + iterationMillis * 1000000L;
+				long now;
+				do
+				{
+					for (int k = 0; k < 16; k++)
+					{
+						acc += op.run(next);
+						if (++next == inputs)
+							next = 0;
+					}
+					n += 16;
+					now = System.nanoTime();
+				} while (now < end);
+				long bytesAfter = alloc == null ? 0 : alloc.getThreadAllocatedBytes(tid);
+				sink += acc;
+
+				if (it >= WARMUP_ITERATIONS)
+				{
+					count += n;
+					nanos += now - start;
+					bytes += bytesAfter - bytesBefore;
+				}
+			}
+
+			double nsPerOp = (double) nanos / count;
+			out.printf("%-28s %-18s %14.1f %14.1f %12s %12s%n", names.get(b), params.get(b), 1e9 / nsPerOp, nsPerOp,
+					alloc == null ? "n/a" : String.format("%.1f", (double) bytes / count),
+					alloc == null ? "n/a" : String.format("%.1f", bytes / (nanos / 1e9) / (1 << 20)));
+		}
+	}
+}
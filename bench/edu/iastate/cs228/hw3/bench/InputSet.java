@@ -0,0 +1,125 @@
+package edu.iastate.cs228.hw3.bench;
+
+/**
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+import java.math.BigInteger;
+import java.util.Random;
+
+public enum InputSet
+{
+	/**
+	 * Uniformly drawn from [1, 10^8].
+	 */
+	BELOW_10_8
+	{
+		@Override
+		long next(Random r)
+		{
+			return 1 + r.nextInt(100000000);
+		}
+	},
+
+	/**
+	 * Products of primes below 100, up to 2^40.
+	 */
+	SMOOTH
+	{
+		@Override
+		long next(Random r)
+		{
+			long n = 1;
+			while (true)
+			{
+				long p = SMALL_PRIMES[r.nextInt(SMALL_PRIMES.length)];
+				if (n > (1L << 40) / p)
+					return n;
+				n *= p;
+			}
+		}
+	},
+
+	/**
+	 * Primes with exactly 32 bits.
+	 */
+	PRIME_32
+	{
+		@Override
+		long next(Random r)
+		{
+			return BigInteger.probablePrime(32, r).longValue();
+		}
+	},
+
+	/**
+	 * Products of two 31-bit primes.
+	 */
+	SEMIPRIME_62
+	{
+		@Override
+		long next(Random r)
+		{
+			return BigInteger.probablePrime(31, r).longValue() * BigInteger.probablePrime(31, r).longValue();
+		}
+	},
+
+	/**
+	 * Highly composite numbers between 10^5 and 2^63.
+	 */
+	HIGHLY_COMPOSITE
+	{
+		@Override
+		long next(Random r)
+		{
+			return HIGHLY_COMPOSITE_NUMBERS[r.nextInt(HIGHLY_COMPOSITE_NUMBERS.length)];
+		}
+	},
+
+	/**
+	 * Smooth 40- to 50-bit numbers whose pairwise products are beyond long range.
+	 */
+	OVERFLOW_PRODUCT
+	{
+		@Override
+		long next(Random r)
+		{
+			long n = 1;
+			long low = 1L << (40 + r.nextInt(10));
+			while (n < low)
+				n *= SMALL_PRIMES[r.nextInt(SMALL_PRIMES.length)];
+			return n;
+		}
+	};
+
+
+	/**
+	 * Number of inputs generated per set.
+	 */
+	public static final int SIZE = 1024;
+
+	private static final long[] SMALL_PRIMES = { 2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41, 43, 47, 53, 59, 61, 67, 71, 73, 79, 83, 89, 97 };
+
+	private static final long[] HIGHLY_COMPOSITE_NUMBERS = {
+			110880L, 1081080L, 10810800L, 110270160L, 735134400L, 5587021440L, 73329656400L,
+			481880599200L, 3373164194400L, 32607253879200L, 260858031033600L, 1732842634723200L,
+			18194847664593600L, 106858629141264000L, 897612484786617600L, 6133685312708553600L };
+
+
+	abstract long next(Random r);
+
+
+	/**
+	 * @return SIZE inputs drawn with a fixed seed, the same on every run
+	 */
+	public long[] generate()
+	{
+		Random r = new Random(ordinal() * 31L + 228);
+		long[] out = new long[SIZE];
+		for (int i = 0; i < SIZE; i++)
+			out[i] = next(r);
+		return out;
+	}
+}
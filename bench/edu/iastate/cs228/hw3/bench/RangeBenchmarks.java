@@ -0,0 +1,76 @@
+package edu.iastate.cs228.hw3.bench;
+
+/**
+ * Benchmarks RangeFactorizer against factoring the same numbers one by one.  Every operation
+ * factors one block of BLOCK consecutive numbers, the next block each time, so ns/op divided by
+ * BLOCK is the cost per number.  The sieve runs on a single worker to compare the algorithms, not
+ * the core count.
+ *
+ *     java -cp bench/classes edu.iastate.cs228.hw3.bench.RangeBenchmarks [-time ms] [-filter regex]
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+import java.util.concurrent.ForkJoinPool;
+
+import edu.iastate.cs228.hw3.FactorizationStrategy;
+import edu.iastate.cs228.hw3.PollardRho;
+import edu.iastate.cs228.hw3.PrimeFactorization;
+import edu.iastate.cs228.hw3.RangeFactorizer;
+import edu.iastate.cs228.hw3.TrialDivision;
+
+public class RangeBenchmarks
+{
+	private static final int BLOCK = 1 << 12;
+	private static final int BLOCKS = 64;
+
+
+	public static void main(String[] args)
+	{
+		Harness h = new Harness(args);
+		register(h);
+		h.run(System.out);
+	}
+
+
+	/**
+	 * Adds every benchmark of this class to h.
+	 *
+	 * @param h
+	 */
+	public static void register(Harness h)
+	{
+		FactorizationStrategy trial = new TrialDivision();
+		FactorizationStrategy rho = new PollardRho();
+		RangeFactorizer sieve = new RangeFactorizer(new ForkJoinPool(1), BLOCK);
+
+		for (int exponent : new int[] { 10, 12 })
+		{
+			long low = (long) Math.pow(10, exponent);
+			String param = "from 10^" + exponent;
+			h.add("range.trialDivision", param, BLOCKS, i -> each(low + (long) i * BLOCK, trial));
+			h.add("range.pollardRho", param, BLOCKS, i -> each(low + (long) i * BLOCK, rho));
+			h.add("range.segmentedSieve", param, BLOCKS, i ->
+			{
+				long start = low + (long) i * BLOCK;
+				long[] factors = new long[1];
+				sieve.factor(start, start + BLOCK - 1, s ->
+				{
+					for (int j = 0; j < s.count(); j++)
+						factors[0] += s.size(j);
+				});
+				return factors[0];
+			});
+		}
+	}
+
+
+	private static long each(long start, FactorizationStrategy strategy)
+	{
+		long factors = 0;
+		for (long n = start; n < start + BLOCK; n++)
+			factors += new PrimeFactorization(n, strategy).size();
+		return factors;
+	}
+}
@@ -0,0 +1,422 @@
+package edu.iastate.cs228.hw3;
+
+/**
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Picks the factorization method by the size of what is left to factor.  Numbers up to the
+ * smallest-prime-factor limit are read off a SmallestPrimeFactorTable.  Larger ones are divided
+ * by the primes up to TRIAL_BOUND first; a cofactor below TRIAL_BOUND^2 is then 1 or a prime, and
+ * a composite one goes by its bit length to TrialDivision, HartOneLine, PollardRho or Ecm:
+ *
+ *     bits < trialBits       TrialDivision
+ *     bits < hartBits        HartOneLine
+ *     bits < ecmBits         PollardRho
+ *     otherwise              Ecm
+ *
+ * The defaults are crossovers measured on one machine.  calibrate() measures them on the current
+ * one by timing the methods on balanced semiprimes of increasing size, the hardest inputs of each
+ * size, and main() stores the result in the file that defaultStrategy() reads.
+ */
+public class AdaptiveStrategy implements FactorizationStrategy
+{
+	/**
+	 * System property with the path of the threshold file.  Without it, the file is CONFIG_FILE
+	 * in the user's home directory.
+	 */
+	public static final String CONFIG_PROPERTY = "edu.iastate.cs228.hw3.adaptive";
+	public static final String CONFIG_FILE = ".prime-factorization.properties";
+
+	public static final int DEFAULT_SPF_LIMIT = 1 << 20;
+	public static final int DEFAULT_TRIAL_BITS = 26;
+	public static final int DEFAULT_HART_BITS = 42;
+	public static final int DEFAULT_ECM_BITS = 52;
+
+	/**
+	 * Bound of the trial division that every number above the table limit goes through.
+	 */
+	static final int TRIAL_BOUND = PollardRho.DEFAULT_TRIAL_BOUND;
+
+	// Calibration: semiprimes of MIN_BITS, MIN_BITS + STEP_BITS, ..., MAX_BITS bits, SAMPLES of
+	// each size, best of RUNS passes per method.  A method takes over only if it is faster
+	// by more than 1 / MARGIN, so that noise does not move a threshold.
+	private static final int MIN_BITS = 24;
+	private static final int MAX_BITS = 62;
+	private static final int STEP_BITS = 2;
+	private static final int SAMPLES = 128;
+	private static final int RUNS = 7;
+	private static final int MARGIN = 10;
+	private static final long WARMUP_NANOS = 500000000L; 		// per method
+	private static final long SEED = 0x5deece66dL;
+
+	private final int spfLimit;
+	private final int trialBits;
+	private final int hartBits;
+	private final int ecmBits;
+
+	private final TrialDivision trial;
+	private final HartOneLine hart;
+	private final PollardRho rho;
+	private final Ecm ecm;
+	private volatile SmallestPrimeFactorTable spf; 		// built on first use
+
+
+	/**
+	 * Default thresholds.
+	 */
+	public AdaptiveStrategy()
+	{
+		this(DEFAULT_SPF_LIMIT, DEFAULT_TRIAL_BITS, DEFAULT_HART_BITS, DEFAULT_ECM_BITS);
+	}
+
+
+	/**
+	 * @param spfLimit   largest number answered from a smallest-prime-factor table, 0 for no table;
+	 *                   the table takes about spfLimit bytes
+	 * @param trialBits  composites of fewer bits go to TrialDivision
+	 * @param hartBits   remaining composites of fewer bits go to HartOneLine
+	 * @param ecmBits    remaining composites of fewer bits go to PollardRho, the rest to Ecm
+	 * @throws IllegalArgumentException if spfLimit is neither 0 nor in [2,
+	 *                                  SmallestPrimeFactorTable.MAX_LIMIT], or a bit count is
+	 *                                  outside [0, 64]
+	 */
+	public AdaptiveStrategy(int spfLimit, int trialBits, int hartBits, int ecmBits) throws IllegalArgumentException
+	{
+		if (spfLimit < 0 || spfLimit == 1 || spfLimit > SmallestPrimeFactorTable.MAX_LIMIT)
+			throw new IllegalArgumentException("spfLimit out of range");
+		if (outOfRange(trialBits) || outOfRange(hartBits) || outOfRange(ecmBits))
+			throw new IllegalArgumentException("bit count out of range");
+
+		this.spfLimit = spfLimit;
+		this.trialBits = trialBits;
+		this.hartBits = hartBits;
+		this.ecmBits = ecmBits;
+		this.trial = new TrialDivision();
+		this.hart = new HartOneLine();
+		this.rho = new PollardRho();
+		this.ecm = new Ecm();
+	}
+
+
+	private static boolean outOfRange(int bits)
+	{
+		return bits < 0 || bits > 64;
+	}
+
+
+	@Override
+	public void factor(long n, FactorConsumer out) throws IllegalArgumentException
+	{
+		if (n < 1)
+			throw new IllegalArgumentException("n is less than 1");
+		if (n <= spfLimit)
+		{
+			spf().factor(n, out);
+			return;
+		}
+
+		long left = PollardRho.divideSmallPrimes(n, TRIAL_BOUND, out);
+
+		// No prime up to TRIAL_BOUND divides left, so below TRIAL_BOUND^2 it is 1 or a prime.
+		if (left < (long) TRIAL_BOUND * TRIAL_BOUND)
+		{
+			if (left > 1)
+				out.accept(left, 1);
+		}
+		else if (left <= spfLimit)
+			spf().factor(left, out);
+		else if (Primality.isPrime(left))
+			out.accept(left, 1);
+		else
+			method(64 - Long.numberOfLeadingZeros(left)).factor(left, out);
+	}
+
+
+	/**
+	 * @param bits  bit length of a composite
+	 * @return strategy that factors it
+	 */
+	private FactorizationStrategy method(int bits)
+	{
+		if (bits < trialBits)
+			return trial;
+		if (bits < hartBits)
+			return hart;
+		if (bits < ecmBits)
+			return rho;
+		return ecm;
+	}
+
+
+	private SmallestPrimeFactorTable spf()
+	{
+		SmallestPrimeFactorTable table = spf;
+		if (table == null)
+		{
+			synchronized (this)
+			{
+				table = spf;
+				if (table == null)
+					spf = table = new SmallestPrimeFactorTable(spfLimit, this);
+			}
+		}
+		return table;
+	}
+
+
+	public int spfLimit()
+	{
+		return spfLimit;
+	}
+
+
+	public int trialBits()
+	{
+		return trialBits;
+	}
+
+
+	public int hartBits()
+	{
+		return hartBits;
+	}
+
+
+	public int ecmBits()
+	{
+		return ecmBits;
+	}
+
+
+	/**
+	 * For instance "AdaptiveStrategy[spfLimit=1048576, trialBits=26, hartBits=42, ecmBits=52]".
+	 */
+	@Override
+	public String toString()
+	{
+		return String.format("AdaptiveStrategy[spfLimit=%d, trialBits=%d, hartBits=%d, ecmBits=%d]",
+				spfLimit, trialBits, hartBits, ecmBits);
+	}
+
+
+	// ----------------
+	// Threshold files
+	// ----------------
+
+	/**
+	 * Reads thresholds from a properties file with the keys spfLimit, trialBits, hartBits and
+	 * ecmBits.  Missing keys keep their defaults.
+	 *
+	 * @param path
+	 * @return strategy with those thresholds
+	 * @throws IOException if the file cannot be read
+	 * @throws IllegalArgumentException if a value is not a number or out of range
+	 */
+	public static AdaptiveStrategy load(Path path) throws IOException, IllegalArgumentException
+	{
+		Properties p = new Properties();
+		try (Reader in = Files.newBufferedReader(path, StandardCharsets.ISO_8859_1))
+		{
+			p.load(in);
+		}
+		return new AdaptiveStrategy(
+				Integer.parseInt(p.getProperty("spfLimit", String.valueOf(DEFAULT_SPF_LIMIT)).trim()),
+				Integer.parseInt(p.getProperty("trialBits", String.valueOf(DEFAULT_TRIAL_BITS)).trim()),
+				Integer.parseInt(p.getProperty("hartBits", String.valueOf(DEFAULT_HART_BITS)).trim()),
+				Integer.parseInt(p.getProperty("ecmBits", String.valueOf(DEFAULT_ECM_BITS)).trim()));
+	}
+
+
+	/**
+	 * Writes the thresholds of this strategy in the format read by load().
+	 *
+	 * @param path
+	 * @throws IOException if the file cannot be written
+	 */
+	public void store(Path path) throws IOException
+	{
+		Properties p = new Properties();
+		p.setProperty("spfLimit", String.valueOf(spfLimit));
+		p.setProperty("trialBits", String.valueOf(trialBits));
+		p.setProperty("hartBits", String.valueOf(hartBits));
+		p.setProperty("ecmBits", String.valueOf(ecmBits));
+		try (Writer out = Files.newBufferedWriter(path, StandardCharsets.ISO_8859_1))
+		{
+			p.store(out, "AdaptiveStrategy thresholds, " + System.getProperty("os.arch") + ", "
+					+ Runtime.getRuntime().availableProcessors() + " cores");
+		}
+	}
+
+
+	/**
+	 * @return file named by the system property CONFIG_PROPERTY, or CONFIG_FILE in the user's home
+	 *         directory
+	 */
+	public static Path configPath()
+	{
+		String path = System.getProperty(CONFIG_PROPERTY);
+		return path != null ? Paths.get(path) : Paths.get(System.getProperty("user.home"), CONFIG_FILE);
+	}
+
+
+	/**
+	 * The strategy behind PrimeFactorization(long) and the other defaults.  Reads the thresholds
+	 * from configPath(), and silently falls back to the defaults if the file is missing, unreadable
+	 * or malformed; load(configPath()) reports what is wrong with it.
+	 *
+	 * @return strategy with the thresholds of this machine
+	 */
+	public static AdaptiveStrategy defaultStrategy()
+	{
+		try
+		{
+			return load(configPath());
+		}
+		catch (IOException | IllegalArgumentException | SecurityException e)
+		{
+			return new AdaptiveStrategy();
+		}
+	}
+
+
+	// -----------
+	// Calibration
+	// -----------
+
+	/**
+	 * Times TrialDivision, HartOneLine, PollardRho and Ecm on balanced semiprimes of MIN_BITS to
+	 * MAX_BITS bits.  At each size, the fastest of the method in use and those after it takes
+	 * over, and the size where it does becomes the threshold.  Every method is run for a while
+	 * beforehand so that the JIT has compiled it.  Takes several seconds.
+	 *
+	 * @param spfLimit  table limit of the result, which is a memory trade-off and not measured
+	 * @return strategy with the measured thresholds
+	 * @throws IllegalArgumentException if spfLimit is out of range
+	 */
+	public static AdaptiveStrategy calibrate(int spfLimit) throws IllegalArgumentException
+	{
+		FactorizationStrategy[] methods = { new TrialDivision(), new HartOneLine(), new PollardRho(), new Ecm() };
+		int[] thresholds = { 64, 64, 64 };
+		Random random = new Random(SEED);
+
+		// Trial division is only warmed up on small numbers, since it is only timed on those.
+		long[] small = semiprimes(MIN_BITS + 4, random);
+		long[] large = semiprimes(MAX_BITS - 8, random);
+		for (int j = 0; j < methods.length; j++)
+		{
+			long start = System.nanoTime();
+			while (System.nanoTime() - start < WARMUP_NANOS)
+			{
+				time(methods[j], small);
+				if (j > 0)
+					time(methods[j], large);
+			}
+		}
+
+		int current = 0;
+		for (int bits = MIN_BITS; bits <= MAX_BITS && current < methods.length - 1; bits += STEP_BITS)
+		{
+			// Interleaved, so that a slow spell of the machine hits every method alike.
+			long[] n = semiprimes(bits, random);
+			long[] nanos = new long[methods.length];
+			Arrays.fill(nanos, Long.MAX_VALUE);
+			for (int run = 0; run < RUNS; run++)
+				for (int j = current; j < methods.length; j++)
+					nanos[j] = Math.min(nanos[j], time(methods[j], n));
+
+			int best = current;
+			for (int j = current + 1; j < methods.length; j++)
+				if (nanos[j] < nanos[best] - nanos[best] / MARGIN)
+					best = j;
+			for (; current < best; current++)
+				thresholds[current] = bits;
+		}
+		return new AdaptiveStrategy(spfLimit, thresholds[0], thresholds[1], thresholds[2]);
+	}
+
+
+	/**
+	 * @return SAMPLES products of two random primes of bits / 2 and bits - bits / 2 bits
+	 */
+	private static long[] semiprimes(int bits, Random random)
+	{
+		long[] n = new long[SAMPLES];
+		for (int i = 0; i < n.length; i++)
+			n[i] = BigInteger.probablePrime(bits / 2, random).longValue()
+					* BigInteger.probablePrime(bits - bits / 2, random).longValue();
+		return n;
+	}
+
+
+	/**
+	 * @return nanoseconds taken by strategy to factor every number of n
+	 */
+	private static long time(FactorizationStrategy strategy, long[] n)
+	{
+		long[] sink = new long[1];
+		FactorConsumer out = (p, m) -> sink[0] += p;
+		long start = System.nanoTime();
+		for (long x : n)
+			strategy.factor(x, out);
+		long nanos = System.nanoTime() - start;
+		if (sink[0] == 0) 		// keeps the results alive
+			throw new IllegalStateException();
+		return nanos;
+	}
+
+
+	/**
+	 * Calibrates this machine and stores the thresholds for defaultStrategy():
+	 *
+	 *   java edu.iastate.cs228.hw3.AdaptiveStrategy [-spf limit] [file]
+	 *
+	 * The file defaults to configPath().
+	 *
+	 * @param args
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		int spfLimit = DEFAULT_SPF_LIMIT;
+		Path path = null;
+		for (int i = 0; i < args.length; i++)
+		{
+			String a = args[i];
+			if (a.equals("-spf") && i + 1 < args.length)
+				spfLimit = Integer.parseInt(args[++i]);
+			else if (!a.startsWith("-") && path == null)
+				path = Paths.get(a);
+			else
+				usage();
+		}
+		if (path == null)
+			path = configPath();
+
+		long start = System.nanoTime();
+		AdaptiveStrategy s = calibrate(spfLimit);
+		s.store(path);
+		System.err.printf("%s in %d ms, stored in %s%n", s, (System.nanoTime() - start) / 1000000, path);
+	}
+
+
+	private static void usage()
+	{
+		System.err.println("usage: AdaptiveStrategy [-spf limit] [file]");
+		System.exit(2);
+	}
+}
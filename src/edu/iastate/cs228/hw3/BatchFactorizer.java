@@ -0,0 +1,174 @@
+package edu.iastate.cs228.hw3;
+
+/**
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.LongStream;
+
+public class BatchFactorizer
+{
+	/**
+	 * A running task splits off half of its remaining range whenever fewer than this many tasks
+	 * are queued beyond what the other workers can take.
+	 */
+	private static final int MAX_SURPLUS = 2;
+
+	private final FactorizationStrategy strategy;
+	private final ForkJoinPool pool;
+
+
+	/**
+	 * Factors with PrimeFactorization's default strategy in the common fork-join pool.
+	 */
+	public BatchFactorizer()
+	{
+		this(PrimeFactorization.DEFAULT_STRATEGY, ForkJoinPool.commonPool());
+	}
+
+
+	/**
+	 * @param strategy  factorization method; called from several threads at once
+	 * @param pool      pool that runs the work
+	 */
+	public BatchFactorizer(FactorizationStrategy strategy, ForkJoinPool pool)
+	{
+		this.strategy = strategy;
+		this.pool = pool;
+	}
+
+
+	/**
+	 * Factors every number of ns in parallel.  The calling thread waits for the pool and does not
+	 * take part in the work, unless it is itself a worker of the pool.
+	 *
+	 * @param ns
+	 * @return result[i] is the factorization of ns[i]
+	 * @throws IllegalArgumentException if some ns[i] < 1
+	 * @throws CancellationException if the calling thread is interrupted while waiting
+	 */
+	public PrimeFactorization[] factor(long[] ns) throws IllegalArgumentException
+	{
+		for (int i = 0; i < ns.length; i++)
+			if (ns[i] < 1)
+				throw new IllegalArgumentException("ns[" + i + "] is less than 1");
+
+		PrimeFactorization[] results = new PrimeFactorization[ns.length];
+		if (ns.length == 0)
+			return results;
+
+		CountDownLatch done = new CountDownLatch(1);
+		FactorTask root = new FactorTask(null, ns, results, 0, ns.length, done);
+		if (ForkJoinTask.getPool() == pool)
+		{
+			root.invoke();
+			return results;
+		}
+
+		// A thread outside the pool that joined the task could end up running it itself, where
+		// getSurplusQueuedTaskCount() means nothing.  Wait on the latch instead.
+		pool.execute(root);
+		try
+		{
+			done.await();
+		}
+		catch (InterruptedException e)
+		{
+			root.cancel(false);
+			Thread.currentThread().interrupt();
+			throw new CancellationException("interrupted");
+		}
+		Throwable failure = root.getException();
+		if (failure instanceof RuntimeException)
+			throw (RuntimeException) failure;
+		if (failure != null)
+			throw new IllegalStateException(failure);
+		return results;
+	}
+
+
+	/**
+	 * Factors every number of a finite stream in parallel.
+	 *
+	 * @param ns
+	 * @return the factorizations in encounter order
+	 * @throws IllegalArgumentException if some number is less than 1
+	 */
+	public PrimeFactorization[] factor(LongStream ns) throws IllegalArgumentException
+	{
+		return factor(ns.toArray());
+	}
+
+
+	/**
+	 * Factors ns[lo, hi) one number at a time.  Before each number the task checks whether the
+	 * other workers are running out of queued work, and if so forks the upper half of what it has
+	 * left.  Work is therefore only split when someone is free to steal it, and a task that hits
+	 * a slow number keeps handing its remaining numbers away instead of holding them up.
+	 */
+	private final class FactorTask extends CountedCompleter<Void>
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final long[] ns;
+		private final PrimeFactorization[] results;
+		private final int lo;
+		private final int hi;
+		private final CountDownLatch done; 		// set on the root task only
+
+		FactorTask(CountedCompleter<?> parent, long[] ns, PrimeFactorization[] results, int lo, int hi, CountDownLatch done)
+		{
+			super(parent);
+			this.ns = ns;
+			this.results = results;
+			this.lo = lo;
+			this.hi = hi;
+			this.done = done;
+		}
+
+		@Override
+		public void onCompletion(CountedCompleter<?> caller)
+		{
+			if (done != null)
+				done.countDown();
+		}
+
+		@Override
+		public boolean onExceptionalCompletion(Throwable ex, CountedCompleter<?> caller)
+		{
+			if (done != null)
+				done.countDown();
+			return true;
+		}
+
+		@Override
+		public void compute()
+		{
+			int l = lo;
+			int h = hi;
+			while (l < h)
+			{
+				if (h - l > 1 && getSurplusQueuedTaskCount() < MAX_SURPLUS)
+				{
+					int mid = (l + h) >>> 1;
+					addToPendingCount(1);
+					new FactorTask(this, ns, results, mid, h, null).fork();
+					h = mid;
+				}
+				else
+				{
+					results[l] = new PrimeFactorization(ns[l], strategy);
+					l++;
+				}
+			}
+			tryComplete();
+		}
+	}
+}
@@ -0,0 +1,394 @@
+package edu.iastate.cs228.hw3;
+
+/**
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+import java.math.BigInteger;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The elliptic-curve method of Ecm in BigInteger arithmetic, for numbers beyond the range of long.
+ * The default runs the curves in the common pool and raises the bounds level by level along the
+ * table in Ecm, from 15- to 30-digit factors, so that small factors are found cheaply and larger
+ * ones only cost more once the small ones are ruled out.  Whatever survives the last level is
+ * handed to BigPollardRho, which keeps the factorization complete but is slow for large factors.
+ */
+public class BigEcm implements BigFactorizationStrategy
+{
+	private static final int[] DEFAULT_B1 = { 2000, 11000, 50000, 250000 };
+	private static final int[] DEFAULT_CURVES = { 25, 90, 300, 700 };
+
+	private final int[] b1;
+	private final long[] b2;
+	private final int[] curves;
+	private final ForkJoinPool pool;
+	private final BigPollardRho fallback;
+	private final Ecm small; 					// used once a part fits in a long
+
+
+	/**
+	 * Levels for 15, 20, 25 and 30 digits with B2 = 100 B1, curves in the common pool.
+	 */
+	public BigEcm()
+	{
+		this(ForkJoinPool.commonPool());
+	}
+
+
+	/**
+	 * Levels for 15, 20, 25 and 30 digits with B2 = 100 B1.
+	 *
+	 * @param pool  pool that runs the curves, or null to run them on the calling thread
+	 */
+	public BigEcm(ForkJoinPool pool)
+	{
+		this(DEFAULT_B1, DEFAULT_CURVES, pool);
+	}
+
+
+	/**
+	 * A single level.
+	 *
+	 * @param b1      stage 1 bound
+	 * @param b2      stage 2 bound; b2 == b1 skips stage 2
+	 * @param curves  curves tried on a composite before it is handed to BigPollardRho
+	 * @param pool    pool that runs the curves, or null to run them on the calling thread
+	 * @throws IllegalArgumentException if b1 < 210, b2 < b1, b2 too large for the PrimeTable, or
+	 *                                  curves < 1
+	 */
+	public BigEcm(int b1, long b2, int curves, ForkJoinPool pool) throws IllegalArgumentException
+	{
+		this(new int[] { b1 }, new long[] { b2 }, new int[] { curves }, pool);
+	}
+
+
+	private BigEcm(int[] b1, int[] curves, ForkJoinPool pool)
+	{
+		this(b1, hundredfold(b1), curves, pool);
+	}
+
+
+	private BigEcm(int[] b1, long[] b2, int[] curves, ForkJoinPool pool) throws IllegalArgumentException
+	{
+		for (int i = 0; i < b1.length; i++)
+		{
+			if (b1[i] < 210 || b2[i] < b1[i] || b2[i] > PrimeTable.MAX_BOUND - 2 * Ecm.stage2Step(b1[i]) || curves[i] < 1)
+				throw new IllegalArgumentException("bounds or curves out of range");
+			PrimeTable.atLeast((int) b2[i] + 2 * Ecm.stage2Step(b1[i]));
+		}
+		this.b1 = b1;
+		this.b2 = b2;
+		this.curves = curves;
+		this.pool = pool;
+		this.fallback = new BigPollardRho();
+		this.small = new Ecm();
+	}
+
+
+	private static long[] hundredfold(int[] b1)
+	{
+		long[] b2 = new long[b1.length];
+		for (int i = 0; i < b1.length; i++)
+			b2[i] = 100L * b1[i];
+		return b2;
+	}
+
+
+	/**
+	 * Divides out the primes up to PollardRho.DEFAULT_TRIAL_BOUND, then splits what is left with
+	 * ECM.  Every part goes back through the primality test and is split again until only primes
+	 * remain; parts that fit in a long are handed to Ecm.  Factors are not reported in order.
+	 */
+	@Override
+	public void factor(BigInteger n, BigFactorConsumer out) throws IllegalArgumentException
+	{
+		if (n.signum() < 1)
+			throw new IllegalArgumentException("n is less than 1");
+
+		BigInteger left = BigPollardRho.divideSmallPrimes(n, PollardRho.DEFAULT_TRIAL_BOUND, out);
+		if (!left.equals(BigInteger.ONE))
+			split(left, 1, out);
+	}
+
+
+	/**
+	 * Reports the prime factors of n^m.
+	 *
+	 * Precondition: n > 1 is odd.
+	 */
+	private void split(BigInteger n, int m, BigFactorConsumer out)
+	{
+		if (n.bitLength() < 64)
+		{
+			small.factor(n.longValue(), (p, k) -> out.accept(BigInteger.valueOf(p), k * m));
+			return;
+		}
+		if (n.isProbablePrime(BigPollardRho.CERTAINTY))
+		{
+			out.accept(n, m);
+			return;
+		}
+
+		BigInteger root = BigPollardRho.squareRoot(n);
+		if (root.multiply(root).equals(n))
+		{
+			split(root, 2 * m, out);
+			return;
+		}
+
+		for (int level = 0; level < b1.length; level++)
+		{
+			int bound1 = b1[level];
+			long bound2 = b2[level];
+			BigInteger d = CurveSearch.first(pool, curves[level], (index, stop) ->
+					curve(n, Ecm.FIRST_SIGMA + index, bound1, bound2, stop));
+			if (d != null)
+			{
+				split(d, m, out);
+				split(n.divide(d), m, out);
+				return;
+			}
+		}
+		fallback.factor(n, (p, k) -> out.accept(p, k * m));
+	}
+
+
+	/**
+	 * Runs stages 1 and 2 on the curve with seed sigma.
+	 *
+	 * @return a nontrivial divisor of n, or null
+	 */
+	private static BigInteger curve(BigInteger n, long sigma, int b1, long b2, AtomicBoolean stop)
+	{
+		Curve c = new Curve(n);
+		BigInteger d = c.setUp(sigma);
+		if (d == null)
+		{
+			if (!c.stage1(b1, stop))
+				return null;
+			d = c.z.gcd(n);
+			if (d.equals(BigInteger.ONE) && b2 > b1)
+				d = c.stage2(b1, b2, stop).gcd(n);
+		}
+		return d.equals(BigInteger.ONE) || d.equals(n) ? null : d;
+	}
+
+
+	/**
+	 * A point on one curve modulo n.
+	 */
+	private static final class Curve
+	{
+		private final BigInteger n;
+		private BigInteger a24; 		// (A + 2) / 4
+		private BigInteger x;
+		private BigInteger z;
+		private BigInteger rx; 			// result of the last dbl, add or ladder
+		private BigInteger rz;
+
+		Curve(BigInteger n)
+		{
+			this.n = n;
+		}
+
+
+		/**
+		 * Suyama's parametrization, see Ecm.
+		 *
+		 * @return null on success, otherwise gcd(16 u^3 v, n), which may be a factor
+		 */
+		BigInteger setUp(long sigma)
+		{
+			BigInteger s = BigInteger.valueOf(sigma);
+			BigInteger u = s.multiply(s).subtract(BigInteger.valueOf(5)).mod(n);
+			BigInteger v = s.shiftLeft(2).mod(n);
+			x = mul(mul(u, u), u);
+			z = mul(mul(v, v), v);
+			BigInteger w = v.subtract(u);
+			BigInteger num = mul(mul(mul(w, w), w), u.multiply(BigInteger.valueOf(3)).add(v));
+			BigInteger den = mul(x, v).shiftLeft(4).mod(n);
+
+			BigInteger g = den.gcd(n);
+			if (!g.equals(BigInteger.ONE))
+				return g;
+			a24 = mul(num, den.modInverse(n));
+			return null;
+		}
+
+
+		/**
+		 * Multiplies the point by every prime power up to b1.
+		 *
+		 * @return false if stopped
+		 */
+		boolean stage1(int b1, AtomicBoolean stop)
+		{
+			int[] primes = PrimeTable.atLeast(b1).primes();
+			for (int i = 0; i < primes.length && primes[i] <= b1; i++)
+			{
+				if ((i & 15) == 15 && CurveSearch.stopped(stop))
+					return false;
+				long p = primes[i];
+				long q = p;
+				while (q <= b1 / p)
+					q *= p;
+				ladder(x, z, q);
+				x = rx;
+				z = rz;
+			}
+			return true;
+		}
+
+
+		/**
+		 * Baby-step giant-step continuation, see Ecm.
+		 *
+		 * @return the accumulated product, or 1 if stopped
+		 */
+		BigInteger stage2(int b1, long b2, AtomicBoolean stop)
+		{
+			int step = Ecm.stage2Step(b1);
+			int half = step / 2;
+			PrimeSieve sieve = PrimeTable.atLeast((int) b2 + 2 * step);
+
+			BigInteger[] bx = new BigInteger[half];
+			BigInteger[] bz = new BigInteger[half];
+			BigInteger qx = x;
+			BigInteger qz = z;
+			dbl(qx, qz);
+			BigInteger dx = rx; 				// 2Q
+			BigInteger dz = rz;
+			BigInteger px = qx; 				// (j - 2)Q
+			BigInteger pz = qz;
+			BigInteger cx = qx; 				// jQ
+			BigInteger cz = qz;
+			for (int j = 1; j < half; j += 2)
+			{
+				bx[j] = cx;
+				bz[j] = cz;
+				if (j == 1)
+					add(dx, dz, qx, qz, qx, qz);
+				else
+					add(cx, cz, dx, dz, px, pz);
+				px = cx;
+				pz = cz;
+				cx = rx;
+				cz = rz;
+			}
+
+			long m = Math.max(1, b1 / step);
+			ladder(qx, qz, step);
+			BigInteger gx = rx;
+			BigInteger gz = rz;
+			ladder(qx, qz, m * step);
+			BigInteger tx = rx; 				// mDQ
+			BigInteger tz = rz;
+			ladder(qx, qz, (m + 1) * step);
+			BigInteger ux = rx; 				// (m + 1)DQ
+			BigInteger uz = rz;
+
+			BigInteger acc = BigInteger.ONE;
+			for (; m * step - half <= b2; m++)
+			{
+				if (CurveSearch.stopped(stop))
+					return BigInteger.ONE;
+				long mid = m * step;
+				for (int j = 1; j < half; j += 2)
+				{
+					if (j % 3 == 0 || j % 5 == 0 || j % 7 == 0 || (step == 2310 && j % 11 == 0))
+						continue;
+					long lo = mid - j;
+					long hi = mid + j;
+					if ((lo > b1 && lo <= b2 && sieve.isPrime(lo)) || (hi > b1 && hi <= b2 && sieve.isPrime(hi)))
+						acc = mul(acc, tx.multiply(bz[j]).subtract(bx[j].multiply(tz)));
+				}
+				add(ux, uz, gx, gz, tx, tz);
+				tx = ux;
+				tz = uz;
+				ux = rx;
+				uz = rz;
+			}
+			return acc;
+		}
+
+
+		/**
+		 * (rx : rz) = k (px : pz) by the Montgomery ladder, k >= 1.
+		 */
+		void ladder(BigInteger px, BigInteger pz, long k)
+		{
+			BigInteger x0 = px;
+			BigInteger z0 = pz;
+			dbl(px, pz);
+			BigInteger x1 = rx;
+			BigInteger z1 = rz;
+			for (int bit = 62 - Long.numberOfLeadingZeros(k); bit >= 0; bit--)
+			{
+				if (((k >>> bit) & 1) != 0)
+				{
+					add(x1, z1, x0, z0, px, pz);
+					x0 = rx;
+					z0 = rz;
+					dbl(x1, z1);
+					x1 = rx;
+					z1 = rz;
+				}
+				else
+				{
+					add(x1, z1, x0, z0, px, pz);
+					x1 = rx;
+					z1 = rz;
+					dbl(x0, z0);
+					x0 = rx;
+					z0 = rz;
+				}
+			}
+			rx = x0;
+			rz = z0;
+		}
+
+
+		/**
+		 * (rx : rz) = 2 (px : pz).
+		 */
+		void dbl(BigInteger px, BigInteger pz)
+		{
+			BigInteger t1 = square(px.add(pz));
+			BigInteger t2 = square(px.subtract(pz));
+			BigInteger t3 = t1.subtract(t2);
+			rx = mul(t1, t2);
+			rz = mul(t3, t2.add(mul(a24, t3)));
+		}
+
+
+		/**
+		 * (rx : rz) = P + Q, given P - Q = (dx : dz).
+		 */
+		void add(BigInteger px, BigInteger pz, BigInteger qx, BigInteger qz, BigInteger dx, BigInteger dz)
+		{
+			BigInteger u = mul(px.subtract(pz), qx.add(qz));
+			BigInteger v = mul(px.add(pz), qx.subtract(qz));
+			rx = mul(dz, square(u.add(v)));
+			rz = mul(dx, square(u.subtract(v)));
+		}
+
+
+		/**
+		 * @return a * b mod n in [0, n), for any signs of a and b
+		 */
+		private BigInteger mul(BigInteger a, BigInteger b)
+		{
+			return a.multiply(b).mod(n);
+		}
+
+
+		private BigInteger square(BigInteger a)
+		{
+			return a.pow(2).mod(n);
+		}
+	}
+}
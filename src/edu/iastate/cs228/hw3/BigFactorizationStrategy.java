@@ -0,0 +1,38 @@
+package edu.iastate.cs228.hw3;
+
+/**
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+import java.math.BigInteger;
+
+public interface BigFactorizationStrategy
+{
+	/**
+	 * Factors n and reports its prime factors to out.  Factors may be reported in any order, and
+	 * the same prime may be reported more than once, in which case the multiplicities add up.
+	 * Nothing is reported for n == 1.
+	 *
+	 * @param n
+	 * @param out  receives every prime factor of n with its multiplicity
+	 * @throws IllegalArgumentException if n < 1
+	 * @throws java.util.concurrent.CancellationException if the calling thread is interrupted
+	 * 		   during a long search, see FactorizationStrategy.checkCancelled()
+	 */
+	void factor(BigInteger n, BigFactorConsumer out) throws IllegalArgumentException;
+
+
+	/**
+	 * Receiver for the prime factors found by a strategy.
+	 */
+	interface BigFactorConsumer
+	{
+		/**
+		 * @param prime         a prime factor
+		 * @param multiplicity  number of times it divides the factored number, at least 1
+		 */
+		void accept(BigInteger prime, int multiplicity);
+	}
+}
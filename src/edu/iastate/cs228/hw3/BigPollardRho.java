@@ -0,0 +1,214 @@
+package edu.iastate.cs228.hw3;
+
+/**
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+import java.math.BigInteger;
+
+public class BigPollardRho implements BigFactorizationStrategy
+{
+	/**
+	 * Certainty passed to BigInteger.isProbablePrime(); the error probability is below 2^-100.
+	 */
+	static final int CERTAINTY = 100;
+
+	private static final int BATCH = 128; 		// differences multiplied together per gcd
+
+	private final int trialBound;
+	private final PollardRho small; 			// used once a part fits in a long
+
+
+	/**
+	 * Trial division up to PollardRho.DEFAULT_TRIAL_BOUND, then Pollard-Brent rho.
+	 */
+	public BigPollardRho()
+	{
+		this(PollardRho.DEFAULT_TRIAL_BOUND);
+	}
+
+
+	/**
+	 * @param trialBound  primes up to this bound are divided out before rho takes over
+	 * @throws IllegalArgumentException if trialBound < 2 or trialBound > PrimeTable.MAX_BOUND
+	 */
+	public BigPollardRho(int trialBound) throws IllegalArgumentException
+	{
+		small = new PollardRho(trialBound);
+		this.trialBound = trialBound;
+	}
+
+
+	/**
+	 * Divides out the primes of the trial table, then splits the rest with Pollard-Brent rho in
+	 * BigInteger arithmetic.  Parts that fit in a long are handed to PollardRho.  Factors are
+	 * not reported in order.
+	 */
+	@Override
+	public void factor(BigInteger n, BigFactorConsumer out) throws IllegalArgumentException
+	{
+		if (n.signum() < 1)
+			throw new IllegalArgumentException("n is less than 1");
+
+		if (n.bitLength() < 64)
+		{
+			factorLong(n.longValue(), 1, out);
+			return;
+		}
+
+		BigInteger left = divideSmallPrimes(n, trialBound, out);
+		if (!left.equals(BigInteger.ONE))
+			split(left, 1, out);
+	}
+
+
+	/**
+	 * BigInteger version of PollardRho.divideSmallPrimes(), without the early stop, which would
+	 * cost a multiplication per prime.
+	 *
+	 * @param n      n >= 1
+	 * @param bound  largest prime tried, at most PrimeTable.MAX_BOUND
+	 * @param out
+	 * @return the cofactor, which has no prime factor up to bound
+	 */
+	static BigInteger divideSmallPrimes(BigInteger n, int bound, BigFactorConsumer out)
+	{
+		BigInteger left = n;
+		int[] primes = PrimeTable.atLeast(bound).primes();
+		for (int i = 0; i < primes.length && primes[i] <= bound; i++)
+		{
+			BigInteger bp = BigInteger.valueOf(primes[i]);
+			int m = 0;
+			BigInteger[] qr = left.divideAndRemainder(bp);
+			while (qr[1].signum() == 0)
+			{
+				left = qr[0];
+				m++;
+				qr = left.divideAndRemainder(bp);
+			}
+			if (m > 0)
+				out.accept(bp, m);
+		}
+		return left;
+	}
+
+
+	/**
+	 * Reports the prime factors of n^m.
+	 *
+	 * Precondition: n > 1 has no prime factor in the trial table, unless n itself is prime.
+	 */
+	private void split(BigInteger n, int m, BigFactorConsumer out)
+	{
+		if (n.bitLength() < 64)
+		{
+			factorLong(n.longValue(), m, out);
+			return;
+		}
+		if (n.isProbablePrime(CERTAINTY))
+		{
+			out.accept(n, m);
+			return;
+		}
+
+		BigInteger root = squareRoot(n);
+		if (root.multiply(root).equals(n))
+		{
+			split(root, 2 * m, out);
+			return;
+		}
+
+		BigInteger d = n;
+		for (long c = 1; d.equals(n); c++)
+			d = brent(n, BigInteger.valueOf(c));
+
+		BigInteger e = n.divide(d);
+		if (d.equals(e))
+		{
+			split(d, 2 * m, out);
+		}
+		else
+		{
+			split(d, m, out);
+			split(e, m, out);
+		}
+	}
+
+
+	private void factorLong(long n, final int m, final BigFactorConsumer out)
+	{
+		small.factor(n, (p, k) -> out.accept(BigInteger.valueOf(p), k * m));
+	}
+
+
+	/**
+	 * Brent's variant of Pollard's rho with f(y) = y^2 + c mod n.
+	 *
+	 * @return a nontrivial divisor of n, or n if this choice of c failed
+	 */
+	private static BigInteger brent(BigInteger n, BigInteger c)
+	{
+		BigInteger y = c;
+		BigInteger x = y;
+		BigInteger ys = y;
+		BigInteger q = BigInteger.ONE;
+		BigInteger g = BigInteger.ONE;
+
+		for (long r = 1; g.equals(BigInteger.ONE); r <<= 1)
+		{
+			x = y;
+			for (long i = 0; i < r; i++)
+			{
+				if ((i & 0xFFFF) == 0xFFFF)
+					FactorizationStrategy.checkCancelled();
+				y = y.multiply(y).add(c).mod(n);
+			}
+
+			for (long k = 0; k < r && g.equals(BigInteger.ONE); k += BATCH)
+			{
+				FactorizationStrategy.checkCancelled();
+				ys = y;
+				long steps = Math.min(BATCH, r - k);
+				for (long i = 0; i < steps; i++)
+				{
+					y = y.multiply(y).add(c).mod(n);
+					q = q.multiply(x.subtract(y)).mod(n);
+				}
+				g = q.gcd(n);
+			}
+		}
+
+		if (g.equals(n))
+		{
+			do
+			{
+				ys = ys.multiply(ys).add(c).mod(n);
+				g = x.subtract(ys).gcd(n);
+			} while (g.equals(BigInteger.ONE));
+		}
+		return g;
+	}
+
+
+	/**
+	 * Newton's method for the integer square root.
+	 *
+	 * @param n  n >= 0
+	 * @return largest r with r * r <= n
+	 */
+	static BigInteger squareRoot(BigInteger n)
+	{
+		if (n.signum() == 0)
+			return n;
+		BigInteger r = BigInteger.ONE.shiftLeft((n.bitLength() + 1) / 2);
+		while (true)
+		{
+			BigInteger next = r.add(n.divide(r)).shiftRight(1);
+			if (next.compareTo(r) >= 0)
+				return r;
+			r = next;
+		}
+	}
+}
@@ -0,0 +1,509 @@
+package edu.iastate.cs228.hw3;
+
+/**
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+public class BigPrimeFactorization
+{
+	/**
+	 * Engine used when no strategy is given.  ECM finds factors of 20 digits and more in seconds,
+	 * where rho would take hours.
+	 */
+	private static final BigFactorizationStrategy DEFAULT_STRATEGY = new BigEcm();
+
+	private static final int INITIAL_CAPACITY = 4;
+
+	// Merge operations on two sorted factor lists.
+	private static final int MULTIPLY = 0;
+	private static final int DIVIDE = 1;
+	private static final int GCD = 2;
+	private static final int LCM = 3;
+
+	private BigInteger[] primes; 	 // distinct prime factors in increasing order
+	private int[] multiplicities;	 // multiplicities[i] belongs to primes[i]
+	private int size;     			 // number of distinct prime factors
+
+	private BigInteger value;		 // the factored integer, null until value() computes it
+
+
+	// ------------
+	// Constructors
+	// ------------
+
+	/**
+	 * Default constructor constructs an empty list to represent the number 1.
+	 */
+	public BigPrimeFactorization()
+	{
+		primes = new BigInteger[INITIAL_CAPACITY];
+		multiplicities = new int[INITIAL_CAPACITY];
+		size = 0;
+		value = BigInteger.ONE;
+	}
+
+
+	/**
+	 * Obtains the prime factorization of n with BigEcm, the elliptic-curve method, with its curves
+	 * in the common pool.
+	 *
+	 * @param n
+	 * @throws IllegalArgumentException if n < 1
+	 */
+	public BigPrimeFactorization(BigInteger n) throws IllegalArgumentException
+	{
+		this(n, DEFAULT_STRATEGY);
+	}
+
+
+	/**
+	 * Obtains the prime factorization of n with the given strategy.
+	 *
+	 * @param n
+	 * @param strategy  factorization method
+	 * @throws IllegalArgumentException if n < 1
+	 */
+	public BigPrimeFactorization(BigInteger n, BigFactorizationStrategy strategy) throws IllegalArgumentException
+	{
+		this();
+		if (n.signum() < 1)
+			throw new IllegalArgumentException("N is less than 1");
+
+		strategy.factor(n, this::add);
+		value = n;
+	}
+
+
+	/**
+	 * Copies the factors of a PrimeFactorization.
+	 *
+	 * @param pf
+	 */
+	public BigPrimeFactorization(PrimeFactorization pf)
+	{
+		this();
+		for (PrimeFactor f : pf)
+			add(BigInteger.valueOf(f.prime), f.multiplicity);
+		value = null;
+	}
+
+
+	/**
+	 * Copy constructor.
+	 *
+	 * @param pf
+	 */
+	public BigPrimeFactorization(BigPrimeFactorization pf)
+	{
+		primes = Arrays.copyOf(pf.primes, Math.max(pf.size, INITIAL_CAPACITY));
+		multiplicities = Arrays.copyOf(pf.multiplicities, primes.length);
+		size = pf.size;
+		value = pf.value;
+	}
+
+
+	private BigPrimeFactorization(BigInteger[] primes, int[] multiplicities, int size)
+	{
+		this.primes = primes;
+		this.multiplicities = multiplicities;
+		this.size = size;
+		this.value = null;
+	}
+
+
+	// ---------------------------
+	// Multiplication and Division
+	// ---------------------------
+
+	/**
+	 * Multiplies the represented integer by n.
+	 *
+	 * @param n
+	 * @throws IllegalArgumentException if n < 1
+	 */
+	public void multiply(BigInteger n) throws IllegalArgumentException
+	{
+		multiply(new BigPrimeFactorization(n));
+	}
+
+
+	/**
+	 * Multiplies the represented integer by the number pf stands for.
+	 *
+	 * @param pf
+	 */
+	public void multiply(BigPrimeFactorization pf)
+	{
+		assign(merge(this, pf, MULTIPLY));
+	}
+
+
+	/**
+	 * @param pf1
+	 * @param pf2
+	 * @return factorization of the product
+	 */
+	public static BigPrimeFactorization multiply(BigPrimeFactorization pf1, BigPrimeFactorization pf2)
+	{
+		return merge(pf1, pf2, MULTIPLY);
+	}
+
+
+	/**
+	 * Divides the represented integer by n if divisible.  No update otherwise.
+	 *
+	 * @param n
+	 * @return true if divisible
+	 *         false if not divisible
+	 * @throws IllegalArgumentException if n <= 0
+	 */
+	public boolean dividedBy(BigInteger n) throws IllegalArgumentException
+	{
+		if (n.signum() < 1)
+			throw new IllegalArgumentException();
+		if (value != null && value.compareTo(n) < 0)
+			return false;
+
+		return dividedBy(new BigPrimeFactorization(n));
+	}
+
+
+	/**
+	 * Divides the represented integer by the number pf stands for if divisible.  No update otherwise.
+	 *
+	 * @param pf
+	 * @return true if divisible by pf
+	 * 		   false otherwise
+	 */
+	public boolean dividedBy(BigPrimeFactorization pf)
+	{
+		BigPrimeFactorization q = merge(this, pf, DIVIDE);
+		if (q == null)
+			return false;
+		assign(q);
+		return true;
+	}
+
+
+	/**
+	 * @param pf1
+	 * @param pf2
+	 * @return quotient as a new object if pf1 is divisible by pf2
+	 *         null otherwise
+	 */
+	public static BigPrimeFactorization dividedBy(BigPrimeFactorization pf1, BigPrimeFactorization pf2)
+	{
+		return merge(pf1, pf2, DIVIDE);
+	}
+
+
+	// -------------------------------------------------
+	// Greatest Common Divisor and Least Common Multiple
+	// -------------------------------------------------
+
+	/**
+	 * @param pf
+	 * @return factorization of the gcd
+	 */
+	public BigPrimeFactorization gcd(BigPrimeFactorization pf)
+	{
+		return merge(this, pf, GCD);
+	}
+
+
+	/**
+	 * @param pf1
+	 * @param pf2
+	 * @return factorization of the gcd of the numbers represented by pf1 and pf2
+	 */
+	public static BigPrimeFactorization gcd(BigPrimeFactorization pf1, BigPrimeFactorization pf2)
+	{
+		return merge(pf1, pf2, GCD);
+	}
+
+
+	/**
+	 * @param pf
+	 * @return factorization of the lcm
+	 */
+	public BigPrimeFactorization lcm(BigPrimeFactorization pf)
+	{
+		return merge(this, pf, LCM);
+	}
+
+
+	/**
+	 * @param pf1
+	 * @param pf2
+	 * @return factorization of the lcm of the numbers represented by pf1 and pf2
+	 */
+	public static BigPrimeFactorization lcm(BigPrimeFactorization pf1, BigPrimeFactorization pf2)
+	{
+		return merge(pf1, pf2, LCM);
+	}
+
+
+	// ------------
+	// List Methods
+	// ------------
+
+	/**
+	 * Precondition: p is a prime.
+	 *
+	 * @param p
+	 * @return true if p is a prime factor of the represented number
+	 */
+	public boolean containsPrimeFactor(BigInteger p)
+	{
+		return Arrays.binarySearch(primes, 0, size, p) >= 0;
+	}
+
+
+	/**
+	 * Adds a prime factor p of multiplicity m.
+	 *
+	 * Precondition: p is a prime.
+	 *
+	 * @param p  prime
+	 * @param m  multiplicity
+	 * @return   true  if m >= 1
+	 *           false if m < 1
+	 * @throws ArithmeticException if the multiplicity of p would exceed Integer.MAX_VALUE
+	 */
+	public boolean add(BigInteger p, int m) throws ArithmeticException
+	{
+		if (m < 1)
+			return false;
+
+		int i = Arrays.binarySearch(primes, 0, size, p);
+		if (i >= 0)
+		{
+			multiplicities[i] = Math.addExact(multiplicities[i], m);
+		}
+		else
+		{
+			i = -i - 1;
+			if (size == primes.length)
+			{
+				primes = Arrays.copyOf(primes, 2 * size);
+				multiplicities = Arrays.copyOf(multiplicities, 2 * size);
+			}
+			System.arraycopy(primes, i, primes, i + 1, size - i);
+			System.arraycopy(multiplicities, i, multiplicities, i + 1, size - i);
+			primes[i] = p;
+			multiplicities[i] = m;
+			size++;
+		}
+		value = null;
+		return true;
+	}
+
+
+	/**
+	 * Removes m from the multiplicity of a prime p, and p itself once its multiplicity drops to 0.
+	 *
+	 * @param p
+	 * @param m
+	 * @return true  when p is found.
+	 *         false when p is not found.
+	 * @throws IllegalArgumentException if m < 1
+	 */
+	public boolean remove(BigInteger p, int m) throws IllegalArgumentException
+	{
+		if (m < 1)
+			throw new IllegalArgumentException("m is less than 1");
+
+		int i = Arrays.binarySearch(primes, 0, size, p);
+		if (i < 0)
+			return false;
+
+		if (multiplicities[i] > m)
+		{
+			multiplicities[i] -= m;
+		}
+		else
+		{
+			System.arraycopy(primes, i + 1, primes, i, size - i - 1);
+			System.arraycopy(multiplicities, i + 1, multiplicities, i, size - i - 1);
+			size--;
+			primes[size] = null;
+		}
+		value = null;
+		return true;
+	}
+
+
+	/**
+	 * @return number of distinct prime factors
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+
+	/**
+	 * @param i  0 <= i < size()
+	 * @return the i-th smallest prime factor
+	 * @throws IndexOutOfBoundsException if i is out of range
+	 */
+	public BigInteger primeAt(int i) throws IndexOutOfBoundsException
+	{
+		checkIndex(i);
+		return primes[i];
+	}
+
+
+	/**
+	 * @param i  0 <= i < size()
+	 * @return multiplicity of the i-th smallest prime factor
+	 * @throws IndexOutOfBoundsException if i is out of range
+	 */
+	public int exponentAt(int i) throws IndexOutOfBoundsException
+	{
+		checkIndex(i);
+		return multiplicities[i];
+	}
+
+
+	/**
+	 * The exact value is computed on the first call after a change and kept until the next one.
+	 *
+	 * @return the represented integer
+	 */
+	public BigInteger value()
+	{
+		if (value == null)
+		{
+			BigInteger v = BigInteger.ONE;
+			for (int i = 0; i < size; i++)
+				v = v.multiply(primes[i].pow(multiplicities[i]));
+			value = v;
+		}
+		return value;
+	}
+
+
+	/**
+	 * @return the same factorization with long primes
+	 * @throws ArithmeticException if a prime factor does not fit in a long
+	 */
+	public PrimeFactorization toPrimeFactorization() throws ArithmeticException
+	{
+		PrimeFactor[] pfList = new PrimeFactor[size];
+		for (int i = 0; i < size; i++)
+			pfList[i] = new PrimeFactor(primes[i].longValueExact(), multiplicities[i]);
+		return new PrimeFactorization(pfList);
+	}
+
+
+	/**
+	 * Writes out the factorization in the form "2 * 3^2 * 17 * 19", or the empty string for the
+	 * number 1, as PrimeFactorization does.
+	 */
+	@Override
+	public String toString()
+	{
+		if (size == 0)
+			return "";
+
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < size; i++)
+		{
+			if (i > 0)
+				sb.append(" * ");
+			sb.append(primes[i]);
+			if (multiplicities[i] > 1)
+				sb.append('^').append(multiplicities[i]);
+		}
+		return sb.toString();
+	}
+
+
+	// --------------
+	// Helper methods
+	// --------------
+
+	/**
+	 * Single pass over both sorted lists.
+	 *
+	 * @return the combined factorization, or null if op == DIVIDE and pf1 is not divisible by pf2
+	 */
+	private static BigPrimeFactorization merge(BigPrimeFactorization pf1, BigPrimeFactorization pf2, int op)
+	{
+		int capacity = Math.max(pf1.size + pf2.size, INITIAL_CAPACITY);
+		BigInteger[] p = new BigInteger[capacity];
+		int[] m = new int[capacity];
+		int k = 0;
+		int i = 0;
+		int j = 0;
+
+		while (i < pf1.size || j < pf2.size)
+		{
+			int c = i == pf1.size ? 1 : j == pf2.size ? -1 : pf1.primes[i].compareTo(pf2.primes[j]);
+			if (c < 0)
+			{
+				if (op != GCD)
+				{
+					p[k] = pf1.primes[i];
+					m[k++] = pf1.multiplicities[i];
+				}
+				i++;
+			}
+			else if (c > 0)
+			{
+				if (op == DIVIDE)
+					return null;
+				if (op != GCD)
+				{
+					p[k] = pf2.primes[j];
+					m[k++] = pf2.multiplicities[j];
+				}
+				j++;
+			}
+			else
+			{
+				int a = pf1.multiplicities[i++];
+				int b = pf2.multiplicities[j++];
+				int e;
+				if (op == MULTIPLY)
+					e = Math.addExact(a, b);
+				else if (op == DIVIDE)
+					e = a - b;
+				else if (op == GCD)
+					e = Math.min(a, b);
+				else
+					e = Math.max(a, b);
+				if (e < 0)
+					return null;
+				if (e > 0)
+				{
+					p[k] = pf1.primes[i - 1];
+					m[k++] = e;
+				}
+			}
+		}
+		return new BigPrimeFactorization(p, m, k);
+	}
+
+
+	private void assign(BigPrimeFactorization pf)
+	{
+		primes = pf.primes;
+		multiplicities = pf.multiplicities;
+		size = pf.size;
+		value = pf.value;
+	}
+
+
+	private void checkIndex(int i) throws IndexOutOfBoundsException
+	{
+		if (i < 0 || i >= size)
+			throw new IndexOutOfBoundsException("index " + i + ", size " + size);
+	}
+}
@@ -0,0 +1,122 @@
+package edu.iastate.cs228.hw3;
+
+/**
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs the independent curves of Ecm and BigEcm, one after the other or spread over the workers
+ * of a pool, until one of them finds a factor.
+ */
+final class CurveSearch
+{
+	/**
+	 * One curve.  Implementations call stopped(stop) every so often and give up when it returns
+	 * true.
+	 */
+	interface Curve<T>
+	{
+		/**
+		 * @param index  curve number, 0 <= index < curves
+		 * @param stop   set once another curve has succeeded or the search is abandoned
+		 * @return a factor, or null if this curve found none
+		 */
+		T run(int index, AtomicBoolean stop);
+	}
+
+
+	private CurveSearch()
+	{
+	}
+
+
+	/**
+	 * Poll for the inner loops of a curve.
+	 *
+	 * @param stop  flag passed to Curve.run
+	 * @return true if the curve should give up
+	 * @throws CancellationException if the current thread has been interrupted
+	 */
+	static boolean stopped(AtomicBoolean stop) throws CancellationException
+	{
+		FactorizationStrategy.checkCancelled();
+		return stop.get();
+	}
+
+
+	/**
+	 * Runs curves 0, ..., curves - 1 until one returns a result.  With a pool, every worker takes
+	 * the next curve number as soon as it is done with the last one, and a success stops the
+	 * others at their next poll.  The calling thread only waits, unless it is itself a worker of
+	 * the pool, in which case it helps.
+	 *
+	 * @param pool    pool that runs the curves, or null to run them on the calling thread
+	 * @param curves  number of curves to try
+	 * @param curve
+	 * @return the first result found, or null if no curve succeeded
+	 * @throws CancellationException if the calling thread is interrupted
+	 */
+	static <T> T first(ForkJoinPool pool, int curves, Curve<T> curve) throws CancellationException
+	{
+		AtomicBoolean stop = new AtomicBoolean();
+		if (pool == null)
+		{
+			for (int i = 0; i < curves; i++)
+			{
+				FactorizationStrategy.checkCancelled();
+				T result = curve.run(i, stop);
+				if (result != null)
+					return result;
+			}
+			return null;
+		}
+
+		AtomicInteger next = new AtomicInteger();
+		AtomicReference<T> found = new AtomicReference<>();
+		ForkJoinTask<?>[] workers = new ForkJoinTask<?>[Math.min(pool.getParallelism(), curves)];
+		for (int w = 0; w < workers.length; w++)
+		{
+			workers[w] = pool.submit(() ->
+			{
+				int i;
+				while (!stop.get() && (i = next.getAndIncrement()) < curves)
+				{
+					T result = curve.run(i, stop);
+					if (result != null && found.compareAndSet(null, result))
+						stop.set(true);
+				}
+			});
+		}
+
+		try
+		{
+			for (ForkJoinTask<?> w : workers)
+				w.get();
+		}
+		catch (InterruptedException e)
+		{
+			stop.set(true);
+			Thread.currentThread().interrupt();
+			throw new CancellationException("interrupted");
+		}
+		catch (ExecutionException e)
+		{
+			stop.set(true);
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			throw new IllegalStateException(cause);
+		}
+		return found.get();
+	}
+}
@@ -0,0 +1,218 @@
+package edu.iastate.cs228.hw3;
+
+/**
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Lazy enumeration of the divisors of a factored number, behind PrimeFactorization.divisors() and
+ * sortedDivisors().  Both iterators work on their own copy of the factor list and allocate nothing
+ * per divisor; nextLong() returns divisors without boxing.  Divisors beyond the range of long are
+ * skipped, which only happens when the factored value overflows.
+ */
+final class Divisors
+{
+	private Divisors()
+	{
+	}
+
+
+	/**
+	 * Mixed-radix odometer over the exponents: digit i runs from 0 to the multiplicity of
+	 * primes[i], and the current divisor is kept as a running product.  Advancing multiplies by
+	 * one prime and, on a carry, divides out the power of the digits that reset, so each step is
+	 * O(1) amortized.  Memory is O(size), whatever the number of divisors.  The order is that of
+	 * the odometer, 1, p0, p0^2, ..., p1, p0 p1, ...
+	 */
+	static final class Odometer implements PrimitiveIterator.OfLong
+	{
+		private final long[] primes;
+		private final int[] multiplicities;
+		private final int[] exponents;			// current digit of each prime
+		private final long[] powers;			// primes[i]^exponents[i]
+		private long divisor = 1;				// next divisor to return
+		private boolean done;
+
+
+		Odometer(long[] primes, int[] multiplicities, int size)
+		{
+			this.primes = Arrays.copyOf(primes, size);
+			this.multiplicities = Arrays.copyOf(multiplicities, size);
+			exponents = new int[size];
+			powers = new long[size];
+			Arrays.fill(powers, 1);
+		}
+
+
+		@Override
+		public boolean hasNext()
+		{
+			return !done;
+		}
+
+
+		@Override
+		public long nextLong()
+		{
+			if (done)
+				throw new NoSuchElementException();
+			long d = divisor;
+			advance();
+			return d;
+		}
+
+
+		/**
+		 * Increments the lowest digit that can still grow without leaving the range of long and
+		 * resets the digits below it.  A digit whose next step overflows is treated as full, since
+		 * every larger value of it overflows as well.
+		 */
+		private void advance()
+		{
+			for (int i = 0; i < primes.length; i++)
+			{
+				long p = primes[i];
+				if (exponents[i] < multiplicities[i] && divisor <= Long.MAX_VALUE / p)
+				{
+					divisor *= p;
+					powers[i] *= p;
+					exponents[i]++;
+					return;
+				}
+				divisor /= powers[i];
+				powers[i] = 1;
+				exponents[i] = 0;
+			}
+			done = true;
+		}
+	}
+
+
+	/**
+	 * Divisors in increasing order.  Every divisor d > 1 has one parent, d divided by its largest
+	 * prime factor, so the divisors form a tree in which children exceed their parent.  The
+	 * children of a node are ordered by the prime they add, which makes each child's successor
+	 * among its siblings computable from the child alone.  A min-heap holds the frontier: popping
+	 * a node pushes its first child and its next sibling.  Each step costs O(log h) for a heap of
+	 * h nodes; h grows by at most one per divisor returned, so for numbers with very many divisors
+	 * the odometer is the cheaper choice.
+	 */
+	static final class Sorted implements PrimitiveIterator.OfLong
+	{
+		private final long[] primes;
+		private final int[] multiplicities;
+
+		// Binary min-heap on value of the nodes (value, index of its largest prime, exponent of
+		// that prime), in parallel arrays.
+		private long[] values = new long[16];
+		private int[] indices = new int[16];
+		private int[] exponents = new int[16];
+		private int heapSize;
+
+
+		Sorted(long[] primes, int[] multiplicities, int size)
+		{
+			this.primes = Arrays.copyOf(primes, size);
+			this.multiplicities = Arrays.copyOf(multiplicities, size);
+			push(1, -1, 0);
+		}
+
+
+		@Override
+		public boolean hasNext()
+		{
+			return heapSize > 0;
+		}
+
+
+		@Override
+		public long nextLong()
+		{
+			if (heapSize == 0)
+				throw new NoSuchElementException();
+			long d = values[0];
+			int i = indices[0];
+			int e = exponents[0];
+			pop();
+
+			// First child: one more p_i if allowed, otherwise the next prime.
+			if (i >= 0 && e < multiplicities[i])
+			{
+				if (d <= Long.MAX_VALUE / primes[i])
+					push(d * primes[i], i, e + 1);
+			}
+			else if (i + 1 < primes.length && d <= Long.MAX_VALUE / primes[i + 1])
+			{
+				push(d * primes[i + 1], i + 1, 1);
+			}
+			// Next sibling: the parent times the next prime.
+			if (i >= 0 && i + 1 < primes.length)
+			{
+				long parent = d / primes[i];
+				if (parent <= Long.MAX_VALUE / primes[i + 1])
+					push(parent * primes[i + 1], i + 1, 1);
+			}
+			return d;
+		}
+
+
+		private void push(long v, int i, int e)
+		{
+			if (heapSize == values.length)
+			{
+				values = Arrays.copyOf(values, 2 * heapSize);
+				indices = Arrays.copyOf(indices, 2 * heapSize);
+				exponents = Arrays.copyOf(exponents, 2 * heapSize);
+			}
+			int k = heapSize++;
+			while (k > 0)
+			{
+				int parent = (k - 1) >>> 1;
+				if (values[parent] <= v)
+					break;
+				set(k, parent);
+				k = parent;
+			}
+			values[k] = v;
+			indices[k] = i;
+			exponents[k] = e;
+		}
+
+
+		private void pop()
+		{
+			int last = --heapSize;
+			long v = values[last];
+			int k = 0;
+			while (true)
+			{
+				int child = 2 * k + 1;
+				if (child >= heapSize)
+					break;
+				if (child + 1 < heapSize && values[child + 1] < values[child])
+					child++;
+				if (v <= values[child])
+					break;
+				set(k, child);
+				k = child;
+			}
+			values[k] = v;
+			indices[k] = indices[last];
+			exponents[k] = exponents[last];
+		}
+
+
+		private void set(int to, int from)
+		{
+			values[to] = values[from];
+			indices[to] = indices[from];
+			exponents[to] = exponents[from];
+		}
+	}
+}
@@ -0,0 +1,416 @@
+package edu.iastate.cs228.hw3;
+
+/**
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lenstra's elliptic-curve method on Montgomery curves B y^2 = x^3 + A x^2 + x, in Montgomery
+ * arithmetic modulo n.  A curve finds a prime p of n when its group order modulo p is B1-smooth
+ * apart from at most one prime in (B1, B2], so unlike rho the cost depends on the size of the
+ * smallest factor, not on that of n.
+ *
+ * Every curve has Suyama's parametrization for a seed sigma, which gives the group order a factor
+ * of 12.  Points are kept as (X : Z) and multiplied with the Montgomery ladder.  Stage 1 multiplies
+ * the starting point by every prime power up to B1; stage 2 is the baby-step giant-step
+ * continuation over the primes in (B1, B2].  Curves are independent and can run on the workers
+ * of a pool.  Typical settings by the number of digits of the factor sought:
+ *
+ *     digits    B1        curves
+ *       10       300        100
+ *       15      2000         25
+ *       20     11000         90
+ *       25     50000        300
+ *       30    250000        700
+ *
+ * with B2 = 100 B1, except at 10 digits where stage 1 is so short that B2 = 25 B1 does better.
+ * A long has no factor beyond 10 digits apart from its largest one, so the default targets 10
+ * digits and runs the curves on the calling thread.  BigEcm is the version for BigInteger, where
+ * ECM pays off most.
+ */
+public class Ecm implements FactorizationStrategy
+{
+	public static final int DEFAULT_B1 = 300;
+	public static final long DEFAULT_B2 = 25L * DEFAULT_B1;
+	public static final int DEFAULT_CURVES = 100;
+
+	/**
+	 * Seed of the first curve.  Suyama's parametrization excludes sigma in {0, +-1, 3, 5}.
+	 */
+	static final int FIRST_SIGMA = 6;
+
+	/**
+	 * Composites below this go straight to PollardRho, which is faster up to about 48 bits.
+	 */
+	static final long RHO_BOUND = 1L << 48;
+
+	private final int b1;
+	private final long b2;
+	private final int curves;
+	private final ForkJoinPool pool;
+	private final PollardRho fallback;
+
+
+	/**
+	 * Default settings, curves on the calling thread.
+	 */
+	public Ecm()
+	{
+		this(DEFAULT_B1, DEFAULT_B2, DEFAULT_CURVES, null);
+	}
+
+
+	/**
+	 * @param b1      stage 1 bound
+	 * @param b2      stage 2 bound; b2 == b1 skips stage 2
+	 * @param curves  curves tried on a composite before it is handed to PollardRho
+	 * @param pool    pool that runs the curves, or null to run them on the calling thread
+	 * @throws IllegalArgumentException if b1 < 210, b2 < b1, b2 too large for the PrimeTable, or
+	 *                                  curves < 1
+	 */
+	public Ecm(int b1, long b2, int curves, ForkJoinPool pool) throws IllegalArgumentException
+	{
+		if (b1 < 210 || b2 < b1 || b2 > PrimeTable.MAX_BOUND - 2 * stage2Step(b1) || curves < 1)
+			throw new IllegalArgumentException("bounds or curves out of range");
+
+		this.b1 = b1;
+		this.b2 = b2;
+		this.curves = curves;
+		this.pool = pool;
+		this.fallback = new PollardRho();
+		PrimeTable.atLeast((int) b2 + 2 * stage2Step(b1));
+	}
+
+
+	/**
+	 * Divides out the primes up to PollardRho.DEFAULT_TRIAL_BOUND, then splits what is left with
+	 * ECM.  Every part goes back through the primality test and is split again until only primes
+	 * remain.  Composites below RHO_BOUND, and any that survive all curves, are factored by
+	 * PollardRho.  Factors are not
+	 * reported in order.
+	 */
+	@Override
+	public void factor(long n, FactorConsumer out) throws IllegalArgumentException
+	{
+		if (n < 1)
+			throw new IllegalArgumentException("n is less than 1");
+
+		long left = PollardRho.divideSmallPrimes(n, PollardRho.DEFAULT_TRIAL_BOUND, out);
+		if (left > 1)
+			split(left, 1, out);
+	}
+
+
+	/**
+	 * Reports the prime factors of n^m.
+	 *
+	 * Precondition: n > 1 is odd.
+	 */
+	private void split(long n, int m, FactorConsumer out)
+	{
+		if (Primality.isPrime(n))
+		{
+			out.accept(n, m);
+			return;
+		}
+
+		long root = PollardRho.squareRoot(n);
+		if (root * root == n)
+		{
+			split(root, 2 * m, out);
+			return;
+		}
+
+		if (n < RHO_BOUND)
+		{
+			fallback.factor(n, (p, k) -> out.accept(p, k * m));
+			return;
+		}
+
+		Long d = CurveSearch.first(pool, curves, (index, stop) -> curve(n, FIRST_SIGMA + index, stop));
+		if (d == null)
+		{
+			fallback.factor(n, (p, k) -> out.accept(p, k * m));
+			return;
+		}
+		split(d, m, out);
+		split(n / d, m, out);
+	}
+
+
+	/**
+	 * Giant step D of stage 2: 2310 = 2 * 3 * 5 * 7 * 11 once B1 is large enough for the baby
+	 * steps below D / 2 to be covered by stage 1, otherwise 210.
+	 */
+	static int stage2Step(long b1)
+	{
+		return b1 >= 2310 ? 2310 : 210;
+	}
+
+
+	/**
+	 * Runs stages 1 and 2 on the curve with seed sigma.
+	 *
+	 * @return a nontrivial divisor of n, or null
+	 */
+	private Long curve(long n, long sigma, AtomicBoolean stop)
+	{
+		Curve c = new Curve(n);
+		long d = c.setUp(sigma);
+		if (d != 1)
+			return d == n ? null : d;
+		if (!c.stage1(b1, stop))
+			return null;
+		d = PollardRho.gcd(c.z, n);
+		if (d != 1)
+			return d == n ? null : d;
+		if (b2 == b1)
+			return null;
+		long acc = c.stage2(b1, b2, stop);
+		d = PollardRho.gcd(acc, n);
+		return d == 1 || d == n ? null : d;
+	}
+
+
+	/**
+	 * A point on one curve modulo n.  Residues are in Montgomery form.
+	 */
+	private static final class Curve
+	{
+		private final Montgomery mont;
+		private final long n;
+		private long a24; 			// (A + 2) / 4
+		private long x;
+		private long z;
+		private long rx; 			// result of the last dbl, add or ladder
+		private long rz;
+
+		Curve(long n)
+		{
+			this.n = n;
+			this.mont = new Montgomery(n);
+		}
+
+
+		/**
+		 * Suyama: u = sigma^2 - 5, v = 4 sigma, start at (u^3 : v^3) on the curve with
+		 * (A + 2) / 4 = (v - u)^3 (3u + v) / (16 u^3 v).
+		 *
+		 * @return 1 on success, otherwise gcd(16 u^3 v, n), which may be a factor
+		 */
+		long setUp(long sigma)
+		{
+			long s = mont.toMontgomery(sigma % n);
+			long u = mont.subtract(mont.multiply(s, s), mont.toMontgomery(5 % n));
+			long v = mont.add(mont.add(s, s), mont.add(s, s));
+			x = mont.multiply(mont.multiply(u, u), u);
+			z = mont.multiply(mont.multiply(v, v), v);
+			long w = mont.subtract(v, u);
+			long num = mont.multiply(mont.multiply(mont.multiply(w, w), w), mont.add(mont.add(u, u), mont.add(u, v)));
+			long den = mont.multiply(mont.multiply(x, v), mont.toMontgomery(16 % n));
+
+			long plain = mont.fromMontgomery(den);
+			long g = PollardRho.gcd(plain, n);
+			if (g != 1)
+				return g;
+			a24 = mont.multiply(num, mont.toMontgomery(inverse(plain, n)));
+			return 1;
+		}
+
+
+		/**
+		 * Multiplies the point by every prime power up to b1.
+		 *
+		 * @return false if stopped
+		 */
+		boolean stage1(int b1, AtomicBoolean stop)
+		{
+			int[] primes = PrimeTable.atLeast(b1).primes();
+			for (int i = 0; i < primes.length && primes[i] <= b1; i++)
+			{
+				if ((i & 63) == 63 && CurveSearch.stopped(stop))
+					return false;
+				long p = primes[i];
+				long q = p;
+				while (q <= b1 / p)
+					q *= p;
+				ladder(x, z, q);
+				x = rx;
+				z = rz;
+			}
+			return true;
+		}
+
+
+		/**
+		 * Baby steps jQ for odd j < D / 2 prime to D, giant steps mDQ.  For every prime
+		 * q = mD +- j in (b1, b2] the product X(mDQ) Z(jQ) - X(jQ) Z(mDQ) enters the
+		 * accumulator; it vanishes modulo p when qQ is the identity modulo p.  mD - j and mD + j
+		 * share one term.
+		 *
+		 * @return the accumulated product, or 1 if stopped
+		 */
+		long stage2(int b1, long b2, AtomicBoolean stop)
+		{
+			int step = stage2Step(b1);
+			int half = step / 2;
+			PrimeSieve sieve = PrimeTable.atLeast((int) b2 + 2 * step);
+
+			long[] bx = new long[half];
+			long[] bz = new long[half];
+			long qx = x;
+			long qz = z;
+			dbl(qx, qz);
+			long dx = rx; 					// 2Q
+			long dz = rz;
+			long px = qx; 					// (j - 2)Q
+			long pz = qz;
+			long cx = qx; 					// jQ
+			long cz = qz;
+			for (int j = 1; j < half; j += 2)
+			{
+				bx[j] = cx;
+				bz[j] = cz;
+				if (j == 1)
+					add(dx, dz, qx, qz, qx, qz);
+				else
+					add(cx, cz, dx, dz, px, pz);
+				px = cx;
+				pz = cz;
+				cx = rx;
+				cz = rz;
+			}
+
+			long m = Math.max(1, b1 / step);
+			ladder(qx, qz, (long) step);
+			long gx = rx;
+			long gz = rz;
+			ladder(qx, qz, m * step);
+			long tx = rx; 					// mDQ
+			long tz = rz;
+			ladder(qx, qz, (m + 1) * step);
+			long ux = rx; 					// (m + 1)DQ
+			long uz = rz;
+
+			long acc = mont.one();
+			for (; m * step - half <= b2; m++)
+			{
+				if (CurveSearch.stopped(stop))
+					return 1;
+				long mid = m * step;
+				for (int j = 1; j < half; j += 2)
+				{
+					if (j % 3 == 0 || j % 5 == 0 || j % 7 == 0 || (step == 2310 && j % 11 == 0))
+						continue;
+					long lo = mid - j;
+					long hi = mid + j;
+					if ((lo > b1 && lo <= b2 && sieve.isPrime(lo)) || (hi > b1 && hi <= b2 && sieve.isPrime(hi)))
+						acc = mont.multiply(acc, mont.subtract(mont.multiply(tx, bz[j]), mont.multiply(bx[j], tz)));
+				}
+				add(ux, uz, gx, gz, tx, tz);
+				tx = ux;
+				tz = uz;
+				ux = rx;
+				uz = rz;
+			}
+			return acc;
+		}
+
+
+		/**
+		 * (rx : rz) = k (px : pz) by the Montgomery ladder, k >= 1.
+		 */
+		void ladder(long px, long pz, long k)
+		{
+			long x0 = px;
+			long z0 = pz;
+			dbl(px, pz);
+			long x1 = rx;
+			long z1 = rz;
+			for (int bit = 62 - Long.numberOfLeadingZeros(k); bit >= 0; bit--)
+			{
+				if (((k >>> bit) & 1) != 0)
+				{
+					add(x1, z1, x0, z0, px, pz);
+					x0 = rx;
+					z0 = rz;
+					dbl(x1, z1);
+					x1 = rx;
+					z1 = rz;
+				}
+				else
+				{
+					add(x1, z1, x0, z0, px, pz);
+					x1 = rx;
+					z1 = rz;
+					dbl(x0, z0);
+					x0 = rx;
+					z0 = rz;
+				}
+			}
+			rx = x0;
+			rz = z0;
+		}
+
+
+		/**
+		 * (rx : rz) = 2 (px : pz).
+		 */
+		void dbl(long px, long pz)
+		{
+			long s = mont.add(px, pz);
+			long d = mont.subtract(px, pz);
+			long t1 = mont.multiply(s, s);
+			long t2 = mont.multiply(d, d);
+			long t3 = mont.subtract(t1, t2);
+			rx = mont.multiply(t1, t2);
+			rz = mont.multiply(t3, mont.add(t2, mont.multiply(a24, t3)));
+		}
+
+
+		/**
+		 * (rx : rz) = P + Q, given P - Q = (dx : dz).
+		 */
+		void add(long px, long pz, long qx, long qz, long dx, long dz)
+		{
+			long u = mont.multiply(mont.subtract(px, pz), mont.add(qx, qz));
+			long v = mont.multiply(mont.add(px, pz), mont.subtract(qx, qz));
+			long s = mont.add(u, v);
+			long d = mont.subtract(u, v);
+			rx = mont.multiply(dz, mont.multiply(s, s));
+			rz = mont.multiply(dx, mont.multiply(d, d));
+		}
+	}
+
+
+	/**
+	 * Extended Euclid.
+	 *
+	 * Precondition: 0 < a < n and gcd(a, n) == 1.
+	 *
+	 * @return a^-1 mod n
+	 */
+	static long inverse(long a, long n)
+	{
+		long r0 = n;
+		long r1 = a;
+		long s0 = 0;
+		long s1 = 1;
+		while (r1 != 0)
+		{
+			long q = r0 / r1;
+			long t = r0 - q * r1;
+			r0 = r1;
+			r1 = t;
+			t = s0 - q * s1;
+			s0 = s1;
+			s1 = t;
+		}
+		return s0 < 0 ? s0 + n : s0;
+	}
+}
@@ -0,0 +1,222 @@
+package edu.iastate.cs228.hw3;
+
+/**
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+import java.nio.ByteBuffer;
+
+/**
+ * Read-only view of one FactorizationCodec encoding inside a ByteBuffer, for instance a mapped
+ * file.  Queries read the bytes in place; nothing is decoded into arrays or objects.
+ */
+public final class EncodedFactorization
+{
+	private static final long OVERFLOW = -1;
+
+	private ByteBuffer buffer;
+	private int offset;
+	private int size;
+	private int length;
+	private int cursor; 		// read index of getVarint
+
+
+	/**
+	 * Creates an empty view; wrap() points it at an encoding.
+	 */
+	public EncodedFactorization()
+	{
+	}
+
+
+	/**
+	 * @param buffer
+	 * @param offset  index of the encoding in buffer
+	 * @throws IllegalArgumentException if the bytes are not a valid encoding
+	 */
+	public EncodedFactorization(ByteBuffer buffer, int offset) throws IllegalArgumentException
+	{
+		wrap(buffer, offset);
+	}
+
+
+	/**
+	 * Points this view at the encoding at buffer[offset] without copying anything, and checks
+	 * its structure.  The buffer's position and limit are not changed, so one view can walk a
+	 * buffer of consecutive encodings:
+	 *
+	 *   for (int at = 0; at < buffer.limit(); at += view.length())
+	 *       view.wrap(buffer, at) ...
+	 *
+	 * @param buffer
+	 * @param offset
+	 * @return this
+	 * @throws IllegalArgumentException if the bytes are not a valid encoding, in which case the
+	 *         view is left as it was
+	 */
+	public EncodedFactorization wrap(ByteBuffer buffer, int offset) throws IllegalArgumentException
+	{
+		int n;
+		try
+		{
+			FactorizationCodec.checkVersion(buffer.get(offset));
+			cursor = offset + 1;
+			n = FactorizationCodec.checkSize(getVarint(buffer), buffer.limit() - cursor);
+			long previous = 0;
+			for (int i = 0; i < n; i++)
+			{
+				previous = FactorizationCodec.checkPrime(previous, getVarint(buffer));
+				FactorizationCodec.checkMultiplicity(getVarint(buffer));
+			}
+		}
+		catch (IndexOutOfBoundsException e)
+		{
+			throw new IllegalArgumentException("truncated factorization");
+		}
+		this.buffer = buffer;
+		this.offset = offset;
+		size = n;
+		length = cursor - offset;
+		return this;
+	}
+
+
+	/**
+	 * @return number of distinct prime factors
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+
+	/**
+	 * @return number of bytes of the encoding
+	 */
+	public int length()
+	{
+		return length;
+	}
+
+
+	/**
+	 * Multiplies the factors out of the encoded bytes.
+	 *
+	 * @return the value, or -1 if it exceeds the range of long, as PrimeFactorization.value()
+	 */
+	public long value()
+	{
+		start();
+		long value = 1;
+		long p = 0;
+		for (int i = 0; i < size && value != OVERFLOW; i++)
+		{
+			p += getVarint();
+			value = PrimeFactorization.times(value, PrimeFactorization.powExact(p, getVarint()));
+		}
+		return value;
+	}
+
+
+	/**
+	 * @return true if the value exceeds the range of long
+	 */
+	public boolean valueOverflow()
+	{
+		return value() == OVERFLOW;
+	}
+
+
+	/**
+	 * Scans the encoded primes, stopping at the first one that is not smaller than p.  Unlike
+	 * PrimeFactorization.containsPrimeFactor, p is not tested for primality.
+	 *
+	 * @param p
+	 * @return true if p is one of the encoded primes
+	 */
+	public boolean containsPrimeFactor(long p)
+	{
+		start();
+		long q = 0;
+		for (int i = 0; i < size; i++)
+		{
+			q += getVarint();
+			if (q >= p)
+				return q == p;
+			getVarint();
+		}
+		return false;
+	}
+
+
+	/**
+	 * Reports every encoded factor to out, in increasing order of the primes.
+	 *
+	 * @param out
+	 */
+	public void forEach(FactorizationStrategy.FactorConsumer out)
+	{
+		start();
+		long p = 0;
+		for (int i = 0; i < size; i++)
+		{
+			p += getVarint();
+			out.accept(p, (int) getVarint());
+		}
+	}
+
+
+	/**
+	 * @return a mutable copy of the encoded factorization
+	 */
+	public PrimeFactorization toPrimeFactorization()
+	{
+		ByteBuffer in = buffer.duplicate();
+		in.position(offset);
+		return FactorizationCodec.decode(in);
+	}
+
+
+	@Override
+	public String toString()
+	{
+		return toPrimeFactorization().toString();
+	}
+
+
+	/**
+	 * Moves the cursor to the first factor.
+	 */
+	private void start()
+	{
+		if (buffer == null)
+			throw new IllegalStateException("no encoding wrapped");
+		cursor = offset + 1;
+		getVarint();
+	}
+
+
+	private long getVarint() throws IllegalArgumentException
+	{
+		return getVarint(buffer);
+	}
+
+
+	/**
+	 * Reads the varint at cursor from in, which wrap() passes before the buffer field is set.
+	 */
+	private long getVarint(ByteBuffer in) throws IllegalArgumentException
+	{
+		long v = 0;
+		for (int shift = 0; shift < 64; shift += 7)
+		{
+			byte b = in.get(cursor++);
+			v |= (long) (b & 0x7F) << shift;
+			if (b >= 0)
+				return v;
+		}
+		throw new IllegalArgumentException("varint longer than 10 bytes");
+	}
+}
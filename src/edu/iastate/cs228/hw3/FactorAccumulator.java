@@ -0,0 +1,355 @@
+package edu.iastate.cs228.hw3;
+
+/**
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+import java.util.Arrays;
+
+public class FactorAccumulator
+{
+	private static final int INITIAL_CAPACITY = 16;
+
+	// Operations, see combine().
+	private static final int MULTIPLY = 0;
+	private static final int DIVIDE = 1;
+	private static final int GCD = 2;
+	private static final int LCM = 3;
+
+	private final FactorizationStrategy strategy;
+	private final FactorizationStrategy.FactorConsumer collector = this::collect;
+
+	private long[] primes; 				// accumulated factors in increasing order
+	private int[] multiplicities;
+	private int size;
+
+	private long[] argPrimes; 			// factors of the current argument in increasing order
+	private int[] argMultiplicities;
+	private int argSize;
+
+	private long[] nextPrimes; 			// target of combine(), swapped with primes afterwards
+	private int[] nextMultiplicities;
+
+
+	/**
+	 * Starts at 1 and factors long arguments with PrimeFactorization's default strategy.
+	 */
+	public FactorAccumulator()
+	{
+		this(PrimeFactorization.DEFAULT_STRATEGY);
+	}
+
+
+	/**
+	 * Starts at 1.
+	 *
+	 * @param strategy  used to factor long arguments
+	 */
+	public FactorAccumulator(FactorizationStrategy strategy)
+	{
+		this.strategy = strategy;
+		primes = new long[INITIAL_CAPACITY];
+		multiplicities = new int[INITIAL_CAPACITY];
+		argPrimes = new long[INITIAL_CAPACITY];
+		argMultiplicities = new int[INITIAL_CAPACITY];
+		nextPrimes = new long[INITIAL_CAPACITY];
+		nextMultiplicities = new int[INITIAL_CAPACITY];
+	}
+
+
+	/**
+	 * Sets the accumulated number back to 1.  The buffers are kept.
+	 */
+	public void reset()
+	{
+		size = 0;
+	}
+
+
+	// ---------------------------
+	// Multiplication and Division
+	// ---------------------------
+
+	/**
+	 * @param n
+	 * @throws IllegalArgumentException if n < 1
+	 * @throws ArithmeticException if a multiplicity exceeds Integer.MAX_VALUE
+	 */
+	public void multiplyBy(long n) throws IllegalArgumentException, ArithmeticException
+	{
+		load(n);
+		combine(MULTIPLY);
+	}
+
+	/**
+	 * @param pf
+	 * @throws ArithmeticException if a multiplicity exceeds Integer.MAX_VALUE
+	 */
+	public void multiplyBy(PrimeFactorization pf) throws ArithmeticException
+	{
+		load(pf);
+		combine(MULTIPLY);
+	}
+
+
+	/**
+	 * Divides the accumulated number by n if it is divisible.  No update otherwise.
+	 *
+	 * @param n
+	 * @return true if divisible
+	 *         false if not divisible
+	 * @throws IllegalArgumentException if n < 1
+	 */
+	public boolean divideBy(long n) throws IllegalArgumentException
+	{
+		load(n);
+		return combine(DIVIDE);
+	}
+
+	/**
+	 * Divides the accumulated number by pf if it is divisible.  No update otherwise.
+	 *
+	 * @param pf
+	 * @return true if divisible
+	 *         false if not divisible
+	 */
+	public boolean divideBy(PrimeFactorization pf)
+	{
+		load(pf);
+		return combine(DIVIDE);
+	}
+
+
+	// -------------------------------------------------
+	// Greatest Common Divisor and Least Common Multiple
+	// -------------------------------------------------
+
+	/**
+	 * Replaces the accumulated number by its gcd with n.
+	 *
+	 * @param n
+	 * @throws IllegalArgumentException if n < 1
+	 */
+	public void gcdWith(long n) throws IllegalArgumentException
+	{
+		load(n);
+		combine(GCD);
+	}
+
+	/**
+	 * Replaces the accumulated number by its gcd with pf.
+	 *
+	 * @param pf
+	 */
+	public void gcdWith(PrimeFactorization pf)
+	{
+		load(pf);
+		combine(GCD);
+	}
+
+	/**
+	 * Replaces the accumulated number by its lcm with n.
+	 *
+	 * @param n
+	 * @throws IllegalArgumentException if n < 1
+	 */
+	public void lcmWith(long n) throws IllegalArgumentException
+	{
+		load(n);
+		combine(LCM);
+	}
+
+	/**
+	 * Replaces the accumulated number by its lcm with pf.
+	 *
+	 * @param pf
+	 */
+	public void lcmWith(PrimeFactorization pf)
+	{
+		load(pf);
+		combine(LCM);
+	}
+
+
+	// -------
+	// Results
+	// -------
+
+	/**
+	 * @return number of distinct prime factors of the accumulated number
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+
+	/**
+	 * Multiplies the factors out.
+	 *
+	 * @return the accumulated number, or -1 if it is greater than 2^63-1
+	 */
+	public long value()
+	{
+		long v = 1;
+		for (int i = 0; i < size && v != -1; i++)
+			v = PrimeFactorization.times(v, PrimeFactorization.powExact(primes[i], multiplicities[i]));
+		return v;
+	}
+
+
+	/**
+	 * @return a new PrimeFactorization holding a copy of the accumulated factors
+	 */
+	public PrimeFactorization toPrimeFactorization()
+	{
+		int capacity = Math.max(size, 1);
+		return new PrimeFactorization(Arrays.copyOf(primes, capacity), Arrays.copyOf(multiplicities, capacity), size);
+	}
+
+
+	// --------------
+	// Helper methods
+	// --------------
+
+	/**
+	 * Factors n into the argument buffers.
+	 */
+	private void load(long n) throws IllegalArgumentException
+	{
+		if (n < 1)
+			throw new IllegalArgumentException("n is less than 1");
+		argSize = 0;
+		strategy.factor(n, collector);
+	}
+
+
+	/**
+	 * Copies the factors of pf into the argument buffers.
+	 */
+	private void load(PrimeFactorization pf)
+	{
+		argSize = 0;
+		int k = pf.size();
+		ensureArgCapacity(k);
+		for (int i = 0; i < k; i++)
+		{
+			argPrimes[i] = pf.primeAt(i);
+			argMultiplicities[i] = pf.exponentAt(i);
+		}
+		argSize = k;
+	}
+
+
+	/**
+	 * Adds a reported factor to the argument buffers, keeping them sorted.  Strategies that report
+	 * in increasing order always append.
+	 */
+	private void collect(long p, int m)
+	{
+		int i = argSize;
+		while (i > 0 && argPrimes[i - 1] > p)
+			i--;
+		if (i > 0 && argPrimes[i - 1] == p)
+		{
+			argMultiplicities[i - 1] += m;
+			return;
+		}
+		ensureArgCapacity(argSize + 1);
+		System.arraycopy(argPrimes, i, argPrimes, i + 1, argSize - i);
+		System.arraycopy(argMultiplicities, i, argMultiplicities, i + 1, argSize - i);
+		argPrimes[i] = p;
+		argMultiplicities[i] = m;
+		argSize++;
+	}
+
+
+	/**
+	 * Merges the accumulated factors with the argument factors into the spare buffers and swaps them
+	 * in.  Exponents add for MULTIPLY, subtract for DIVIDE, and take the minimum or maximum for GCD
+	 * and LCM.
+	 *
+	 * @return false if op == DIVIDE and the accumulated number is not divisible, in which case
+	 *         nothing changes; true otherwise
+	 */
+	private boolean combine(int op) throws ArithmeticException
+	{
+		int capacity = size + argSize;
+		if (nextPrimes.length < capacity)
+		{
+			nextPrimes = new long[Math.max(capacity, 2 * nextPrimes.length)];
+			nextMultiplicities = new int[nextPrimes.length];
+		}
+		long[] p = nextPrimes;
+		int[] m = nextMultiplicities;
+		int k = 0;
+		int i = 0;
+		int j = 0;
+
+		while (i < size || j < argSize)
+		{
+			if (j == argSize || (i < size && primes[i] < argPrimes[j]))
+			{
+				if (op != GCD)
+				{
+					p[k] = primes[i];
+					m[k++] = multiplicities[i];
+				}
+				i++;
+			}
+			else if (i == size || primes[i] > argPrimes[j])
+			{
+				if (op == DIVIDE)
+					return false;
+				if (op != GCD)
+				{
+					p[k] = argPrimes[j];
+					m[k++] = argMultiplicities[j];
+				}
+				j++;
+			}
+			else
+			{
+				int a = multiplicities[i];
+				int b = argMultiplicities[j];
+				int e;
+				if (op == MULTIPLY)
+					e = Math.addExact(a, b);
+				else if (op == DIVIDE)
+					e = a - b;
+				else if (op == GCD)
+					e = Math.min(a, b);
+				else
+					e = Math.max(a, b);
+				if (e < 0)
+					return false;
+				if (e > 0)
+				{
+					p[k] = primes[i];
+					m[k++] = e;
+				}
+				i++;
+				j++;
+			}
+		}
+
+		nextPrimes = primes;
+		nextMultiplicities = multiplicities;
+		primes = p;
+		multiplicities = m;
+		size = k;
+		return true;
+	}
+
+
+	private void ensureArgCapacity(int capacity)
+	{
+		if (argPrimes.length < capacity)
+		{
+			argPrimes = Arrays.copyOf(argPrimes, Math.max(capacity, 2 * argPrimes.length));
+			argMultiplicities = Arrays.copyOf(argMultiplicities, argPrimes.length);
+		}
+	}
+}
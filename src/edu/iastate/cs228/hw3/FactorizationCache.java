@@ -0,0 +1,586 @@
+package edu.iastate.cs228.hw3;
+
+/**
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+import java.util.Arrays;
+
+/**
+ * Bounded in-memory cache of factorizations with W-TinyLFU eviction, used as a strategy that wraps
+ * another one:
+ *
+ *   FactorizationCache cache = new FactorizationCache(100000);
+ *   PrimeFactorization pf = new PrimeFactorization(n, cache);
+ *
+ * Keys are primitive longs throughout: an open-addressing table maps n to a node, and the nodes
+ * live in parallel arrays linked into three LRU queues.  New entries enter a small window queue
+ * (WINDOW_PERCENT of the capacity).  An entry pushed out of the window competes with the least
+ * recently used entry of the main area's probation queue, and whichever a count-min sketch of
+ * recent accesses rates less frequent is evicted.  A probation entry that is hit moves to the
+ * protected queue (PROTECTED_PERCENT of the main area).  One-off keys therefore cannot flush out
+ * the keys that keep coming back, while a burst of new keys still gets a chance in the window.
+ *
+ * The cache is bounded either by the number of entries or by their estimated heap footprint.
+ * All methods are thread-safe; lookups and updates take a short lock, and a miss is factored
+ * outside of it.
+ */
+public class FactorizationCache implements FactorizationStrategy
+{
+	/**
+	 * What the maximum of a cache counts.
+	 */
+	public enum Bound
+	{
+		/**
+		 * Number of cached factorizations.
+		 */
+		ENTRIES,
+
+		/**
+		 * Estimated heap bytes of the cached factorizations and their bookkeeping.
+		 */
+		BYTES
+	}
+
+
+	private static final int WINDOW_PERCENT = 1;
+	private static final int PROTECTED_PERCENT = 80;
+
+	/**
+	 * Estimated bytes of an entry besides its factors: the node arrays, two table slots, and the
+	 * ImmutablePrimeFactorization with its two array headers.
+	 */
+	private static final int ENTRY_OVERHEAD = 112;
+
+	// queues; each has a sentinel node with the same index
+	private static final byte WINDOW = 0;
+	private static final byte PROBATION = 1;
+	private static final byte PROTECTED = 2;
+	private static final int FIRST_NODE = 3;
+
+	private final FactorizationStrategy delegate;
+	private final Bound bound;
+	private final long maximum;
+	private final long windowMaximum;
+	private final long protectedMaximum;
+	private final FrequencySketch sketch;
+
+	// nodes
+	private long[] keys;
+	private ImmutablePrimeFactorization[] factors;
+	private int[] weights;
+	private int[] prev;
+	private int[] next;
+	private byte[] queues;
+	private int nodeCount = FIRST_NODE;
+	private int freeList = -1; 		// chained through next[]
+
+	// table of node indices + 1, 0 when empty
+	private int[] table;
+	private int size;
+
+	private final long[] queueWeight = new long[3];
+
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long loadNanos;
+
+
+	/**
+	 * A cache of at most maxEntries factorizations in front of PrimeFactorization's default
+	 * strategy.
+	 *
+	 * @param maxEntries
+	 * @throws IllegalArgumentException if maxEntries < 1
+	 */
+	public FactorizationCache(int maxEntries) throws IllegalArgumentException
+	{
+		this(PrimeFactorization.DEFAULT_STRATEGY, Bound.ENTRIES, maxEntries);
+	}
+
+
+	/**
+	 * @param delegate  strategy that factors on a miss
+	 * @param bound     what maximum counts
+	 * @param maximum   largest number of entries or of estimated bytes
+	 * @throws IllegalArgumentException if maximum < 1
+	 */
+	public FactorizationCache(FactorizationStrategy delegate, Bound bound, long maximum) throws IllegalArgumentException
+	{
+		if (maximum < 1)
+			throw new IllegalArgumentException("maximum is less than 1");
+
+		this.delegate = delegate;
+		this.bound = bound;
+		this.maximum = maximum;
+		this.windowMaximum = Math.max(1, maximum * WINDOW_PERCENT / 100);
+		this.protectedMaximum = (maximum - windowMaximum) * PROTECTED_PERCENT / 100;
+
+		long expectedEntries = bound == Bound.ENTRIES ? maximum : maximum / (ENTRY_OVERHEAD + 32);
+		sketch = new FrequencySketch((int) Math.min(1 << 26, Math.max(16, expectedEntries)));
+
+		int nodes = (int) Math.min(1 << 10, expectedEntries + FIRST_NODE);
+		keys = new long[Math.max(nodes, FIRST_NODE + 1)];
+		factors = new ImmutablePrimeFactorization[keys.length];
+		weights = new int[keys.length];
+		prev = new int[keys.length];
+		next = new int[keys.length];
+		queues = new byte[keys.length];
+		table = new int[tableSizeFor(keys.length)];
+		for (int q = WINDOW; q <= PROTECTED; q++)
+		{
+			prev[q] = q;
+			next[q] = q;
+			queues[q] = (byte) q;
+		}
+	}
+
+
+	/**
+	 * Reports the factors of n from the cache, or factors n with the delegate strategy outside of
+	 * the lock and caches the result.  Two threads that miss on the same n at once both factor it.
+	 */
+	@Override
+	public void factor(long n, FactorConsumer out) throws IllegalArgumentException
+	{
+		ImmutablePrimeFactorization cached = getOrFactor(n);
+		for (int i = 0; i < cached.size(); i++)
+			out.accept(cached.primeAt(i), cached.exponentAt(i));
+	}
+
+
+	/**
+	 * Looks n up without loading it.  Counts as an access for the hit statistics and for eviction.
+	 * The cached object itself is returned; it is immutable, so it can be shared as it is.
+	 *
+	 * @param n
+	 * @return the cached factorization of n, or null if there is none
+	 */
+	public synchronized ImmutablePrimeFactorization get(long n)
+	{
+		sketch.increment(n);
+		int node = find(n);
+		if (node < 0)
+		{
+			misses++;
+			return null;
+		}
+		hits++;
+		onHit(node);
+		return factors[node];
+	}
+
+
+	/**
+	 * Returns the factorization of n from the cache, factoring and caching it on a miss.
+	 *
+	 * @param n
+	 * @return the factorization of n, shared with the cache
+	 * @throws IllegalArgumentException if n < 1
+	 */
+	public ImmutablePrimeFactorization getOrFactor(long n) throws IllegalArgumentException
+	{
+		if (n < 1)
+			throw new IllegalArgumentException("n is less than 1");
+		ImmutablePrimeFactorization cached = get(n);
+		if (cached == null)
+		{
+			long start = System.nanoTime();
+			cached = new PrimeFactorization(n, delegate).toImmutable();
+			insert(n, cached, System.nanoTime() - start);
+		}
+		return cached;
+	}
+
+
+	/**
+	 * Removes every entry.  The statistics are kept.
+	 */
+	public synchronized void invalidateAll()
+	{
+		Arrays.fill(table, 0);
+		Arrays.fill(factors, null);
+		for (int q = WINDOW; q <= PROTECTED; q++)
+		{
+			prev[q] = q;
+			next[q] = q;
+			queueWeight[q] = 0;
+		}
+		nodeCount = FIRST_NODE;
+		freeList = -1;
+		size = 0;
+	}
+
+
+	// ----------
+	// Statistics
+	// ----------
+
+	/**
+	 * @return number of cached factorizations
+	 */
+	public synchronized int size()
+	{
+		return size;
+	}
+
+
+	/**
+	 * @return current total of what the maximum bounds: entries or estimated bytes
+	 */
+	public synchronized long weightedSize()
+	{
+		return queueWeight[WINDOW] + queueWeight[PROBATION] + queueWeight[PROTECTED];
+	}
+
+
+	/**
+	 * @return number of lookups that found their key
+	 */
+	public synchronized long hitCount()
+	{
+		return hits;
+	}
+
+
+	/**
+	 * @return number of lookups that did not find their key
+	 */
+	public synchronized long missCount()
+	{
+		return misses;
+	}
+
+
+	/**
+	 * @return hits / (hits + misses), or 1 before the first lookup
+	 */
+	public synchronized double hitRate()
+	{
+		long lookups = hits + misses;
+		return lookups == 0 ? 1 : (double) hits / lookups;
+	}
+
+
+	/**
+	 * @return number of entries evicted to respect the maximum
+	 */
+	public synchronized long evictionCount()
+	{
+		return evictions;
+	}
+
+
+	/**
+	 * @return total time spent factoring misses, in nanoseconds
+	 */
+	public synchronized long totalLoadNanos()
+	{
+		return loadNanos;
+	}
+
+
+	@Override
+	public synchronized String toString()
+	{
+		long loads = Math.max(1, misses);
+		return String.format("FactorizationCache[%d entries, %d of %d %s, hit rate %.3f, %d evictions, %.1f us/load]",
+				size, weightedSize(), maximum, bound.name().toLowerCase(), hitRate(), evictions, loadNanos / 1000.0 / loads);
+	}
+
+
+	// ------
+	// Policy
+	// ------
+
+	private synchronized void insert(long n, ImmutablePrimeFactorization value, long nanos)
+	{
+		loadNanos += nanos;
+		if (find(n) >= 0)
+			return;
+		int weight = bound == Bound.ENTRIES ? 1 : ENTRY_OVERHEAD + 12 * value.size();
+		if (weight > maximum)
+			return;
+
+		int node = newNode();
+		keys[node] = n;
+		factors[node] = value;
+		weights[node] = weight;
+		tableInsert(node);
+		size++;
+		link(node, WINDOW);
+		evict();
+	}
+
+
+	private void onHit(int node)
+	{
+		byte q = queues[node];
+		unlink(node);
+		if (q == PROBATION)
+		{
+			link(node, PROTECTED);
+			while (queueWeight[PROTECTED] > protectedMaximum)
+			{
+				int demoted = next[PROTECTED];
+				unlink(demoted);
+				link(demoted, PROBATION);
+			}
+		}
+		else
+			link(node, q);
+	}
+
+
+	/**
+	 * Moves the window's overflow to the probation queue, then lets each newcomer there duel
+	 * with the probation queue's least recently used entry until the cache fits its maximum.
+	 */
+	private void evict()
+	{
+		int candidates = 0;
+		while (queueWeight[WINDOW] > windowMaximum)
+		{
+			int node = next[WINDOW];
+			unlink(node);
+			link(node, PROBATION);
+			candidates++;
+		}
+
+		while (weightedSize() > maximum)
+		{
+			int victim = next[PROBATION];
+			int candidate = candidates > 0 ? prev[PROBATION] : PROBATION;
+			if (victim == PROBATION)
+			{
+				// Everything is protected or in the window; fall back to plain LRU.
+				victim = next[PROTECTED] != PROTECTED ? next[PROTECTED] : next[WINDOW];
+				remove(victim);
+				continue;
+			}
+			if (candidate == PROBATION || candidate == victim)
+			{
+				remove(victim);
+				candidates = Math.max(0, candidates - 1);
+				continue;
+			}
+			if (sketch.frequency(keys[candidate]) > sketch.frequency(keys[victim]))
+				remove(victim);
+			else
+			{
+				remove(candidate);
+				candidates--;
+			}
+		}
+	}
+
+
+	private void remove(int node)
+	{
+		unlink(node);
+		tableRemove(node);
+		factors[node] = null;
+		next[node] = freeList;
+		freeList = node;
+		size--;
+		evictions++;
+	}
+
+
+	// ------
+	// Queues
+	// ------
+
+	private void link(int node, byte q)
+	{
+		int last = prev[q];
+		prev[node] = last;
+		next[node] = q;
+		next[last] = node;
+		prev[q] = node;
+		queues[node] = q;
+		queueWeight[q] += weights[node];
+	}
+
+
+	private void unlink(int node)
+	{
+		next[prev[node]] = next[node];
+		prev[next[node]] = prev[node];
+		queueWeight[queues[node]] -= weights[node];
+	}
+
+
+	private int newNode()
+	{
+		if (freeList >= 0)
+		{
+			int node = freeList;
+			freeList = next[node];
+			return node;
+		}
+		if (nodeCount == keys.length)
+		{
+			int capacity = keys.length * 2;
+			keys = Arrays.copyOf(keys, capacity);
+			factors = Arrays.copyOf(factors, capacity);
+			weights = Arrays.copyOf(weights, capacity);
+			prev = Arrays.copyOf(prev, capacity);
+			next = Arrays.copyOf(next, capacity);
+			queues = Arrays.copyOf(queues, capacity);
+			rehash(tableSizeFor(capacity));
+		}
+		return nodeCount++;
+	}
+
+
+	// -----
+	// Table
+	// -----
+
+	private int find(long n)
+	{
+		int mask = table.length - 1;
+		for (int i = FrequencySketch.spread(n) & mask; ; i = (i + 1) & mask)
+		{
+			int node = table[i] - 1;
+			if (node < 0)
+				return -1;
+			if (keys[node] == n)
+				return node;
+		}
+	}
+
+
+	private void tableInsert(int node)
+	{
+		int mask = table.length - 1;
+		int i = FrequencySketch.spread(keys[node]) & mask;
+		while (table[i] != 0)
+			i = (i + 1) & mask;
+		table[i] = node + 1;
+	}
+
+
+	/**
+	 * Linear-probing deletion: later entries of the cluster whose home slot the hole cuts off
+	 * from them are shifted back into it.
+	 */
+	private void tableRemove(int node)
+	{
+		int mask = table.length - 1;
+		int i = FrequencySketch.spread(keys[node]) & mask;
+		while (table[i] != node + 1)
+			i = (i + 1) & mask;
+		int hole = i;
+		for (i = (i + 1) & mask; table[i] != 0; i = (i + 1) & mask)
+		{
+			int home = FrequencySketch.spread(keys[table[i] - 1]) & mask;
+			if (((i - home) & mask) >= ((i - hole) & mask))
+			{
+				table[hole] = table[i];
+				hole = i;
+			}
+		}
+		table[hole] = 0;
+	}
+
+
+	private void rehash(int tableSize)
+	{
+		int[] old = table;
+		table = new int[tableSize];
+		for (int slot : old)
+			if (slot != 0)
+				tableInsert(slot - 1);
+	}
+
+
+	private static int tableSizeFor(int nodes)
+	{
+		return Integer.highestOneBit(Math.max(nodes, 2) - 1) << 2;
+	}
+
+
+	/**
+	 * Count-min sketch of access frequencies with four 4-bit counters per key.  When the number of
+	 * recorded accesses reaches ten times the width, every counter is halved, so the sketch
+	 * follows the recent popularity of keys rather than the all-time one.
+	 */
+	static final class FrequencySketch
+	{
+		private static final long[] SEEDS = { 0x97cb3127L, 0xb0d65a97L, 0xc8a3d3c9L, 0xe0b3b5e7L };
+		private static final long RESET_MASK = 0x7777777777777777L;
+
+		private final long[] table; 		// sixteen counters per long
+		private final int mask;
+		private final int sampleSize;
+		private int additions;
+
+		FrequencySketch(int width)
+		{
+			int length = Integer.highestOneBit(Math.max(width, 16) - 1) << 1;
+			table = new long[length];
+			mask = length - 1;
+			sampleSize = 10 * length;
+		}
+
+		void increment(long key)
+		{
+			int h = spread(key);
+			int start = (h & 3) << 2;
+			boolean added = false;
+			for (int i = 0; i < 4; i++)
+			{
+				int index = indexOf(h, i);
+				int shift = (start + i) << 2;
+				if (((table[index] >>> shift) & 0xF) != 0xF)
+				{
+					table[index] += 1L << shift;
+					added = true;
+				}
+			}
+			if (added && ++additions == sampleSize)
+				reset();
+		}
+
+		int frequency(long key)
+		{
+			int h = spread(key);
+			int start = (h & 3) << 2;
+			int min = 0xF;
+			for (int i = 0; i < 4; i++)
+			{
+				int shift = (start + i) << 2;
+				min = Math.min(min, (int) ((table[indexOf(h, i)] >>> shift) & 0xF));
+			}
+			return min;
+		}
+
+		private void reset()
+		{
+			for (int i = 0; i < table.length; i++)
+				table[i] = (table[i] >>> 1) & RESET_MASK;
+			additions /= 2;
+		}
+
+		private int indexOf(int h, int i)
+		{
+			long hash = (h + SEEDS[i]) * SEEDS[i];
+			hash += hash >>> 32;
+			return (int) hash & mask;
+		}
+
+		static int spread(long key)
+		{
+			key ^= key >>> 33;
+			key *= 0xff51afd7ed558ccdL;
+			key ^= key >>> 33;
+			return (int) key;
+		}
+	}
+}
@@ -0,0 +1,206 @@
+package edu.iastate.cs228.hw3;
+
+/**
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Binary form of a PrimeFactorization:
+ *
+ *   version   1 byte, currently VERSION
+ *   k         varint, number of distinct primes
+ *   k times:  varint prime delta, varint multiplicity
+ *
+ * The first delta is the smallest prime itself and every later one is the difference to the
+ * previous prime.  A varint is an unsigned LEB128 number: 7 bits per byte, low bits first, high
+ * bit set on every byte but the last.  2^6 * 5^6 = 1000000 takes 6 bytes, against 24 for the
+ * prime and multiplicity arrays alone.
+ */
+public final class FactorizationCodec
+{
+	/**
+	 * Format version written by encode.
+	 */
+	public static final byte VERSION = 1;
+
+	private FactorizationCodec()
+	{
+	}
+
+
+	/**
+	 * @param pf
+	 * @return number of bytes encode(pf, ...) writes
+	 */
+	public static int encodedLength(PrimeFactorization pf)
+	{
+		int length = 1 + varintLength(pf.size());
+		long previous = 0;
+		for (int i = 0; i < pf.size(); i++)
+		{
+			long p = pf.primeAt(i);
+			length += varintLength(p - previous) + varintLength(pf.exponentAt(i));
+			previous = p;
+		}
+		return length;
+	}
+
+
+	/**
+	 * Writes pf at the position of out and advances it.
+	 *
+	 * @param pf
+	 * @param out
+	 * @return number of bytes written
+	 * @throws java.nio.BufferOverflowException if out has too little room
+	 */
+	public static int encode(PrimeFactorization pf, ByteBuffer out)
+	{
+		int start = out.position();
+		out.put(VERSION);
+		putVarint(out, pf.size());
+		long previous = 0;
+		for (int i = 0; i < pf.size(); i++)
+		{
+			long p = pf.primeAt(i);
+			putVarint(out, p - previous);
+			putVarint(out, pf.exponentAt(i));
+			previous = p;
+		}
+		return out.position() - start;
+	}
+
+
+	/**
+	 * @param pf
+	 * @return pf encoded in an array of exactly encodedLength(pf) bytes
+	 */
+	public static byte[] encode(PrimeFactorization pf)
+	{
+		byte[] bytes = new byte[encodedLength(pf)];
+		encode(pf, ByteBuffer.wrap(bytes));
+		return bytes;
+	}
+
+
+	/**
+	 * Reads a factorization at the position of in and advances past it.  The structure is
+	 * validated; the primes themselves are trusted, not tested.
+	 *
+	 * @param in
+	 * @return the decoded factorization
+	 * @throws IllegalArgumentException if the bytes are not a valid encoding
+	 */
+	public static PrimeFactorization decode(ByteBuffer in) throws IllegalArgumentException
+	{
+		try
+		{
+			checkVersion(in.get());
+			int k = checkSize(getVarint(in), in.remaining());
+			long[] primes = new long[Math.max(k, 1)];
+			int[] multiplicities = new int[primes.length];
+			long previous = 0;
+			for (int i = 0; i < k; i++)
+			{
+				previous = checkPrime(previous, getVarint(in));
+				primes[i] = previous;
+				multiplicities[i] = checkMultiplicity(getVarint(in));
+			}
+			return new PrimeFactorization(primes, multiplicities, k);
+		}
+		catch (BufferUnderflowException e)
+		{
+			throw new IllegalArgumentException("truncated factorization");
+		}
+	}
+
+
+	/**
+	 * @param bytes
+	 * @return the factorization encoded at the start of bytes
+	 * @throws IllegalArgumentException if the bytes are not a valid encoding
+	 */
+	public static PrimeFactorization decode(byte[] bytes) throws IllegalArgumentException
+	{
+		return decode(ByteBuffer.wrap(bytes));
+	}
+
+
+	// -------
+	// Varints
+	// -------
+
+	static int varintLength(long v)
+	{
+		return v == 0 ? 1 : (63 - Long.numberOfLeadingZeros(v)) / 7 + 1;
+	}
+
+
+	static void putVarint(ByteBuffer out, long v)
+	{
+		while ((v & ~0x7FL) != 0)
+		{
+			out.put((byte) (v | 0x80));
+			v >>>= 7;
+		}
+		out.put((byte) v);
+	}
+
+
+	static long getVarint(ByteBuffer in) throws IllegalArgumentException
+	{
+		long v = 0;
+		for (int shift = 0; shift < 64; shift += 7)
+		{
+			byte b = in.get();
+			v |= (long) (b & 0x7F) << shift;
+			if (b >= 0)
+				return v;
+		}
+		throw new IllegalArgumentException("varint longer than 10 bytes");
+	}
+
+
+	// ----------
+	// Validation
+	// ----------
+
+	static void checkVersion(byte version) throws IllegalArgumentException
+	{
+		if (version != VERSION)
+			throw new IllegalArgumentException("unknown format version " + version);
+	}
+
+
+	/**
+	 * Every factor takes at least two bytes, which bounds k before anything is allocated.
+	 */
+	static int checkSize(long k, int remaining) throws IllegalArgumentException
+	{
+		if (k < 0 || k > remaining / 2)
+			throw new IllegalArgumentException("bad factor count " + k);
+		return (int) k;
+	}
+
+
+	static long checkPrime(long previous, long delta) throws IllegalArgumentException
+	{
+		long p = previous + delta;
+		if (delta < 1 || p < 2 || p < previous)
+			throw new IllegalArgumentException("primes out of order");
+		return p;
+	}
+
+
+	static int checkMultiplicity(long m) throws IllegalArgumentException
+	{
+		if (m < 1 || m > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("bad multiplicity " + m);
+		return (int) m;
+	}
+}
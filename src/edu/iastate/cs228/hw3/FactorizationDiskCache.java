@@ -0,0 +1,705 @@
+package edu.iastate.cs228.hw3;
+
+/**
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Persistent cache of factorizations, used as a strategy that wraps another one:
+ *
+ *   FactorizationDiskCache cache = new FactorizationDiskCache(dir);
+ *   PrimeFactorization pf = new PrimeFactorization(n, cache);
+ *
+ * looks n up on disk and only factors it on a miss.  A cache directory holds three files:
+ *
+ *   log-<g>   the factorizations, encoded by FactorizationCodec and appended one after another
+ *   index     an open-addressing hash table from n to the offset of its record in the log
+ *   lock      locked by the one instance that may write
+ *
+ * Both data files are memory mapped.  The index starts with a HEADER byte header (magic, version,
+ * slot count, entry count, log generation g, committed log size) followed by SLOT byte slots of
+ * n, record offset and hit count; n == 0 marks an empty slot.  A record is appended, the committed
+ * log size and entry count in the header are advanced, and the slot is filled before the key is
+ * stored.  So a reader never finds a key without its record, and a writer that dies in between
+ * leaves at most an unused record, which the next writer never overwrites while a key points to it.
+ *
+ * When the log would grow past maxBytes it is compacted: the most frequently hit entries, up to
+ * half of maxBytes, are copied into log-(g+1), a new index is written next to the old one and
+ * renamed over it, and log-g is deleted.  Growing the index works the same way, so the index
+ * file is always complete.
+ *
+ * Any number of instances, in any number of JVMs, may open a directory read-only.  They see the
+ * entries present when they opened it and those added since in place; after the writer grows or
+ * compacts the index they keep reading the old, still consistent, files until reopened.
+ */
+public class FactorizationDiskCache implements FactorizationStrategy, Closeable
+{
+	/**
+	 * Default bound on the size of the log.
+	 */
+	public static final long DEFAULT_MAX_BYTES = 1L << 30;
+
+	/**
+	 * Largest supported bound on the size of the log; the log is mapped as a single buffer.
+	 */
+	public static final long MAX_BYTES = Integer.MAX_VALUE;
+
+	private static final long MAGIC = 0x5046434143484531L; 		// "PFCACHE1"
+	private static final int VERSION = 1;
+	private static final int HEADER = 64;
+	private static final int SLOT = 16;
+	private static final int INITIAL_SLOTS = 1 << 12;
+	private static final int MIN_LOG_MAPPING = 1 << 20;
+
+	// header fields
+	private static final int SLOTS_AT = 12;
+	private static final int ENTRIES_AT = 16;
+	private static final int GENERATION_AT = 20;
+	private static final int LOG_SIZE_AT = 24;
+
+	// slot fields
+	private static final int OFFSET_AT = 8;
+	private static final int HITS_AT = 12;
+
+	private final Path dir;
+	private final FactorizationStrategy delegate;
+	private final long maxBytes;
+	private final boolean readOnly;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	private FileChannel lockChannel;
+	private FileLock fileLock;
+
+	private MappedByteBuffer index;
+	private int slots;
+	private int entries;
+	private int generation;
+	private long logSize;
+
+	private FileChannel logChannel;
+	private MappedByteBuffer log;
+
+
+	/**
+	 * Opens or creates a writable cache in dir with PrimeFactorization's default strategy behind
+	 * it and a log of at most DEFAULT_MAX_BYTES.
+	 *
+	 * @param dir
+	 * @throws IOException if the files cannot be opened, or another instance is writing to dir
+	 */
+	public FactorizationDiskCache(Path dir) throws IOException
+	{
+		this(dir, PrimeFactorization.DEFAULT_STRATEGY, DEFAULT_MAX_BYTES, false);
+	}
+
+
+	/**
+	 * @param dir       cache directory; created if missing and not readOnly
+	 * @param delegate  strategy that factors on a miss
+	 * @param maxBytes  bound on the size of the log
+	 * @param readOnly  true to only look up; misses are factored but not stored
+	 * @throws IllegalArgumentException if maxBytes < 1024 or maxBytes > MAX_BYTES
+	 * @throws IOException if the files cannot be opened, are not a cache, or another instance
+	 *         is writing to dir while readOnly is false
+	 */
+	public FactorizationDiskCache(Path dir, FactorizationStrategy delegate, long maxBytes, boolean readOnly) throws IllegalArgumentException, IOException
+	{
+		if (maxBytes < 1024 || maxBytes > MAX_BYTES)
+			throw new IllegalArgumentException("maxBytes out of range");
+
+		this.dir = dir;
+		this.delegate = delegate;
+		this.maxBytes = maxBytes;
+		this.readOnly = readOnly;
+
+		if (readOnly)
+		{
+			openIndex();
+			openLog();
+			return;
+		}
+
+		Files.createDirectories(dir);
+		lockChannel = FileChannel.open(dir.resolve("lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		try
+		{
+			fileLock = lockChannel.tryLock();
+		}
+		catch (OverlappingFileLockException e)
+		{
+			fileLock = null;
+		}
+		if (fileLock == null)
+		{
+			lockChannel.close();
+			throw new IOException(dir + " is open for writing elsewhere");
+		}
+
+		try
+		{
+			if (!Files.exists(dir.resolve("index")))
+				writeIndex(INITIAL_SLOTS, 0, new long[0], new int[0], new int[0], 0, 0);
+			openIndex();
+			deleteStrayFiles();
+			openLog();
+			if (logSize > maxBytes)
+				compact();
+		}
+		catch (IOException | RuntimeException e)
+		{
+			lockChannel.close();
+			throw e;
+		}
+	}
+
+
+	/**
+	 * Reports the factors of n from the cache, or factors n with the delegate strategy and, unless
+	 * the cache is read-only, stores the result.
+	 */
+	@Override
+	public void factor(long n, FactorConsumer out) throws IllegalArgumentException
+	{
+		if (n < 1)
+			throw new IllegalArgumentException("n is less than 1");
+
+		EncodedFactorization cached = lookup(n);
+		if (cached != null)
+		{
+			hits.incrementAndGet();
+			cached.forEach(out);
+			return;
+		}
+		misses.incrementAndGet();
+
+		PrimeFactorization pf = new PrimeFactorization(n, delegate);
+		if (!readOnly)
+			put(pf);
+		for (int i = 0; i < pf.size(); i++)
+			out.accept(pf.primeAt(i), pf.exponentAt(i));
+	}
+
+
+	/**
+	 * @param n
+	 * @return the cached factorization of n, or null if there is none
+	 */
+	public PrimeFactorization get(long n)
+	{
+		EncodedFactorization cached = lookup(n);
+		return cached == null ? null : cached.toPrimeFactorization();
+	}
+
+
+	/**
+	 * Stores pf under its value, unless that is already cached.
+	 *
+	 * @param pf
+	 * @throws IllegalArgumentException if pf's value overflows
+	 * @throws IllegalStateException if the cache is read-only or closed
+	 * @throws UncheckedIOException if the files cannot be written
+	 */
+	public void put(PrimeFactorization pf) throws IllegalArgumentException, IllegalStateException
+	{
+		if (pf.valueOverflow())
+			throw new IllegalArgumentException("value overflows");
+		if (readOnly)
+			throw new IllegalStateException("cache is read-only");
+
+		long n = pf.value();
+		int length = FactorizationCodec.encodedLength(pf);
+		lock.writeLock().lock();
+		try
+		{
+			if (index == null)
+				throw new IllegalStateException("cache is closed");
+			if (find(n) >= 0 || length > maxBytes / 2)
+				return;
+			if (logSize + length > maxBytes)
+				compact();
+			ensureLogMapped(logSize + length);
+			if (2 * (entries + 1) > slots)
+				rewriteIndex(2 * slots, false);
+
+			ByteBuffer at = log.duplicate();
+			at.position((int) logSize);
+			FactorizationCodec.encode(pf, at);
+
+			int offset = (int) logSize;
+			entries++;
+			logSize += length;
+			index.putInt(ENTRIES_AT, entries);
+			index.putLong(LOG_SIZE_AT, logSize);
+
+			int slot = probe(n);
+			index.putInt(slot + OFFSET_AT, offset);
+			index.putInt(slot + HITS_AT, 0);
+			index.putLong(slot, n);
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+
+	/**
+	 * Keeps the most frequently hit entries, up to half of maxBytes, and drops the rest.
+	 *
+	 * @throws IOException if the files cannot be rewritten
+	 * @throws IllegalStateException if the cache is read-only or closed
+	 */
+	public void compact() throws IOException, IllegalStateException
+	{
+		if (readOnly)
+			throw new IllegalStateException("cache is read-only");
+
+		lock.writeLock().lock();
+		try
+		{
+			if (index == null)
+				throw new IllegalStateException("cache is closed");
+			rewriteIndex(slots, true);
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+
+	/**
+	 * @return number of cached factorizations
+	 */
+	public int size()
+	{
+		lock.readLock().lock();
+		try
+		{
+			return readOnly ? index.getInt(ENTRIES_AT) : entries;
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+
+	/**
+	 * @return bytes of the log in use
+	 */
+	public long logBytes()
+	{
+		lock.readLock().lock();
+		try
+		{
+			return readOnly ? index.getLong(LOG_SIZE_AT) : logSize;
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+
+	/**
+	 * @return number of factor() calls answered from the cache
+	 */
+	public long hitCount()
+	{
+		return hits.get();
+	}
+
+
+	/**
+	 * @return number of factor() calls that had to factor
+	 */
+	public long missCount()
+	{
+		return misses.get();
+	}
+
+
+	/**
+	 * Forces the mapped files to the storage device.
+	 */
+	public void flush()
+	{
+		if (readOnly)
+			return;
+		lock.writeLock().lock();
+		try
+		{
+			log.force();
+			index.force();
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+
+	/**
+	 * Flushes and releases the files.  The mappings themselves are released by the garbage
+	 * collector.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		flush();
+		lock.writeLock().lock();
+		try
+		{
+			index = null;
+			log = null;
+			logChannel.close();
+			if (lockChannel != null)
+				lockChannel.close();
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+
+	@Override
+	public String toString()
+	{
+		return String.format("FactorizationDiskCache[%s, %d entries, %d of %d log bytes, %d hits, %d misses]",
+				dir, size(), logBytes(), maxBytes, hitCount(), missCount());
+	}
+
+
+	// -------
+	// Lookups
+	// -------
+
+	/**
+	 * Returns a view of the record of n, or null.  A writer counts the hit in the slot so that
+	 * compaction can keep the hottest entries; the count is approximate under concurrent hits.
+	 */
+	private EncodedFactorization lookup(long n)
+	{
+		lock.readLock().lock();
+		try
+		{
+			if (index == null)
+				throw new IllegalStateException("cache is closed");
+			int slot = find(n);
+			if (slot < 0)
+				return null;
+			int offset = index.getInt(slot + OFFSET_AT);
+			if (!readOnly)
+			{
+				int h = index.getInt(slot + HITS_AT);
+				if (h < Integer.MAX_VALUE)
+					index.putInt(slot + HITS_AT, h + 1);
+			}
+			try
+			{
+				return new EncodedFactorization(log, offset);
+			}
+			catch (IllegalArgumentException e)
+			{
+				if (!readOnly)
+					throw e;
+				return new EncodedFactorization(remapForReading(), offset);
+			}
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+
+	/**
+	 * @return byte position of the slot holding n, or -1
+	 */
+	private int find(long n)
+	{
+		int mask = slots - 1;
+		for (int i = mix(n) & mask; ; i = (i + 1) & mask)
+		{
+			int slot = HEADER + i * SLOT;
+			long key = index.getLong(slot);
+			if (key == n)
+				return slot;
+			if (key == 0)
+				return -1;
+		}
+	}
+
+
+	/**
+	 * @return byte position of the first free slot on the probe sequence of n
+	 */
+	private int probe(long n)
+	{
+		int mask = slots - 1;
+		for (int i = mix(n) & mask; ; i = (i + 1) & mask)
+		{
+			int slot = HEADER + i * SLOT;
+			if (index.getLong(slot) == 0)
+				return slot;
+		}
+	}
+
+
+	/**
+	 * Final step of MurmurHash3, which spreads consecutive n over the table.
+	 */
+	private static int mix(long n)
+	{
+		n ^= n >>> 33;
+		n *= 0xff51afd7ed558ccdL;
+		n ^= n >>> 33;
+		n *= 0xc4ceb9fe1a85ec53L;
+		n ^= n >>> 33;
+		return (int) n;
+	}
+
+
+	// -----
+	// Files
+	// -----
+
+	private void openIndex() throws IOException
+	{
+		Path path = dir.resolve("index");
+		try (FileChannel channel = FileChannel.open(path, readOnly
+				? new StandardOpenOption[] { StandardOpenOption.READ }
+				: new StandardOpenOption[] { StandardOpenOption.READ, StandardOpenOption.WRITE }))
+		{
+			long size = channel.size();
+			if (size < HEADER)
+				throw new IOException(path + " is not a factorization cache index");
+			index = channel.map(readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+		if (index.getLong(0) != MAGIC || index.getInt(8) != VERSION)
+			throw new IOException(dir + " is not a factorization cache, or of another version");
+		slots = index.getInt(SLOTS_AT);
+		entries = index.getInt(ENTRIES_AT);
+		generation = index.getInt(GENERATION_AT);
+		logSize = index.getLong(LOG_SIZE_AT);
+		if (Integer.bitCount(slots) != 1 || HEADER + (long) slots * SLOT != index.capacity())
+			throw new IOException(dir.resolve("index") + " is damaged");
+	}
+
+
+	private void openLog() throws IOException
+	{
+		Path path = logPath(generation);
+		if (readOnly)
+		{
+			logChannel = FileChannel.open(path, StandardOpenOption.READ);
+			log = logChannel.map(FileChannel.MapMode.READ_ONLY, 0, logChannel.size());
+		}
+		else
+		{
+			logChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			if (logChannel.size() < logSize)
+				throw new IOException(path + " is shorter than its index says");
+			log = logChannel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(logSize, Math.min(MIN_LOG_MAPPING, maxBytes)));
+		}
+	}
+
+
+	/**
+	 * A read-only instance maps the log as it was when opened; records the writer has appended
+	 * since may lie beyond that, or straddle the end of the mapping.
+	 */
+	private ByteBuffer remapForReading()
+	{
+		synchronized (logChannel)
+		{
+			try
+			{
+				if (readOnly && logChannel.size() > log.limit())
+					log = logChannel.map(FileChannel.MapMode.READ_ONLY, 0, logChannel.size());
+				return log;
+			}
+			catch (IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+
+	/**
+	 * Maps at least size bytes of the log, doubling the mapping so that appends rarely remap.
+	 */
+	private void ensureLogMapped(long size) throws IOException
+	{
+		if (size <= log.capacity())
+			return;
+		long mapped = Math.min(maxBytes, Math.max(size, 2L * log.capacity()));
+		log = logChannel.map(FileChannel.MapMode.READ_WRITE, 0, mapped);
+	}
+
+
+	/**
+	 * Writes a new index with the given number of slots and renames it over the current one.
+	 * With compact, the entries are ranked by hits and copied, up to half of maxBytes, into a new
+	 * log generation with their hit counts halved, so that entries no longer hit age out; the index
+	 * is then sized for the entries kept.  Otherwise the log stays as it is.
+	 */
+	private void rewriteIndex(int newSlots, boolean compact) throws IOException
+	{
+		long[] keys = new long[entries];
+		int[] offsets = new int[entries];
+		int[] hitCounts = new int[entries];
+		long[] ranked = new long[entries];
+		int k = 0;
+		for (int i = 0; i < slots; i++)
+		{
+			int slot = HEADER + i * SLOT;
+			long key = index.getLong(slot);
+			if (key == 0)
+				continue;
+			keys[k] = key;
+			offsets[k] = index.getInt(slot + OFFSET_AT);
+			hitCounts[k] = index.getInt(slot + HITS_AT);
+			ranked[k] = (long) hitCounts[k] << 32 | k;
+			k++;
+		}
+
+		int newGeneration = generation;
+		long newLogSize = logSize;
+		if (compact)
+		{
+			newGeneration = generation + 1;
+			Arrays.sort(ranked, 0, k);
+			long budget = maxBytes / 2;
+			long[] keptKeys = new long[k];
+			int[] keptOffsets = new int[k];
+			int[] keptHits = new int[k];
+			int kept = 0;
+			EncodedFactorization view = new EncodedFactorization();
+
+			try (FileChannel channel = FileChannel.open(logPath(newGeneration), StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE))
+			{
+				MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.min(logSize, budget));
+				for (int r = k - 1; r >= 0; r--)
+				{
+					int e = (int) ranked[r];
+					int length = view.wrap(log, offsets[e]).length();
+					if (out.position() + length > out.capacity())
+						continue;
+					keptKeys[kept] = keys[e];
+					keptOffsets[kept] = out.position();
+					keptHits[kept] = hitCounts[e] / 2;
+					kept++;
+					ByteBuffer record = log.duplicate();
+					record.position(offsets[e]).limit(offsets[e] + length);
+					out.put(record);
+				}
+				newLogSize = out.position();
+				out.force();
+			}
+			keys = keptKeys;
+			offsets = keptOffsets;
+			hitCounts = keptHits;
+			k = kept;
+			newSlots = INITIAL_SLOTS;
+			while (newSlots < 4L * kept)
+				newSlots <<= 1;
+		}
+
+		writeIndex(newSlots, newGeneration, keys, offsets, hitCounts, k, newLogSize);
+		int oldGeneration = generation;
+		openIndex();
+		if (compact)
+		{
+			logChannel.close();
+			openLog();
+			Files.deleteIfExists(logPath(oldGeneration));
+		}
+	}
+
+
+	/**
+	 * Writes the first count entries to index.tmp, forces it and renames it over index.
+	 */
+	private void writeIndex(int newSlots, int newGeneration, long[] keys, int[] offsets, int[] hitCounts, int count, long newLogSize) throws IOException
+	{
+		Path tmp = dir.resolve("index.tmp");
+		try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE))
+		{
+			MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + (long) newSlots * SLOT);
+			out.putLong(0, MAGIC);
+			out.putInt(8, VERSION);
+			out.putInt(SLOTS_AT, newSlots);
+			out.putInt(ENTRIES_AT, count);
+			out.putInt(GENERATION_AT, newGeneration);
+			out.putLong(LOG_SIZE_AT, newLogSize);
+			int mask = newSlots - 1;
+			for (int e = 0; e < count; e++)
+			{
+				int i = mix(keys[e]) & mask;
+				while (out.getLong(HEADER + i * SLOT) != 0)
+					i = (i + 1) & mask;
+				int slot = HEADER + i * SLOT;
+				out.putLong(slot, keys[e]);
+				out.putInt(slot + OFFSET_AT, offsets[e]);
+				out.putInt(slot + HITS_AT, hitCounts[e]);
+			}
+			out.force();
+		}
+		Files.move(tmp, dir.resolve("index"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+
+	/**
+	 * Removes what a crash during a rewrite may have left behind.
+	 */
+	private void deleteStrayFiles() throws IOException
+	{
+		Files.deleteIfExists(dir.resolve("index.tmp"));
+		String current = logPath(generation).getFileName().toString();
+		try (DirectoryStream<Path> logs = Files.newDirectoryStream(dir, "log-*"))
+		{
+			for (Path p : logs)
+				if (!p.getFileName().toString().equals(current))
+					Files.delete(p);
+		}
+	}
+
+
+	private Path logPath(int g)
+	{
+		return dir.resolve("log-" + g);
+	}
+}
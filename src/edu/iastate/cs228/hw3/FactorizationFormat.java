@@ -0,0 +1,345 @@
+package edu.iastate.cs228.hw3;
+
+/**
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Text form of a factorization, "2 * 3^2 * 17 * 19": the primes in increasing order separated by
+ * " * ", each followed by "^" and its multiplicity when that is above 1.  1 is written as the
+ * empty string.
+ *
+ * The formatting methods append to a caller's StringBuilder, Appendable or ByteBuffer and create
+ * no intermediate String.  parse is the inverse and reads straight from a CharSequence.
+ */
+public final class FactorizationFormat
+{
+	/**
+	 * Digits of Long.MAX_VALUE.
+	 */
+	private static final int MAX_DIGITS = 19;
+
+
+	private FactorizationFormat()
+	{
+	}
+
+
+	// ----------
+	// Formatting
+	// ----------
+
+	/**
+	 * @param out
+	 * @param pf
+	 * @return out
+	 */
+	public static StringBuilder appendTo(StringBuilder out, PrimeFactorization pf)
+	{
+		for (int i = 0; i < pf.size(); i++)
+			appendFactor(out, i, pf.primeAt(i), pf.exponentAt(i));
+		return out;
+	}
+
+
+	/**
+	 * @param out
+	 * @param pf
+	 * @return out
+	 */
+	public static StringBuilder appendTo(StringBuilder out, ImmutablePrimeFactorization pf)
+	{
+		for (int i = 0; i < pf.size(); i++)
+			appendFactor(out, i, pf.primeAt(i), pf.exponentAt(i));
+		return out;
+	}
+
+
+	/**
+	 * Appends to any Appendable one char at a time, so that nothing is allocated on the way.
+	 *
+	 * @param out
+	 * @param pf
+	 * @return out
+	 * @throws IOException if out throws it
+	 */
+	public static Appendable appendTo(Appendable out, PrimeFactorization pf) throws IOException
+	{
+		if (out instanceof StringBuilder)
+			return appendTo((StringBuilder) out, pf);
+
+		for (int i = 0; i < pf.size(); i++)
+		{
+			if (i > 0)
+				out.append(' ').append('*').append(' ');
+			appendDigits(out, pf.primeAt(i));
+			int m = pf.exponentAt(i);
+			if (m > 1)
+			{
+				out.append('^');
+				appendDigits(out, m);
+			}
+		}
+		return out;
+	}
+
+
+	/**
+	 * Writes the ASCII form at the position of out and advances it.
+	 *
+	 * @param out
+	 * @param pf
+	 * @return number of bytes written
+	 * @throws BufferOverflowException if out has too little room, in which case part of
+	 *         the form may have been written
+	 */
+	public static int put(ByteBuffer out, PrimeFactorization pf)
+	{
+		int start = out.position();
+		for (int i = 0; i < pf.size(); i++)
+		{
+			if (i > 0)
+				out.put((byte) ' ').put((byte) '*').put((byte) ' ');
+			putDigits(out, pf.primeAt(i));
+			int m = pf.exponentAt(i);
+			if (m > 1)
+			{
+				out.put((byte) '^');
+				putDigits(out, m);
+			}
+		}
+		return out.position() - start;
+	}
+
+
+	/**
+	 * Writes the decimal digits of v >= 0 at the position of out.
+	 *
+	 * @param out
+	 * @param v
+	 */
+	static void putDigits(ByteBuffer out, long v)
+	{
+		int n = digitCount(v);
+		if (out.remaining() < n)
+			throw new BufferOverflowException();
+		int end = out.position() + n;
+		if (out.hasArray())
+		{
+			byte[] a = out.array();
+			int i = out.arrayOffset() + end;
+			do
+			{
+				a[--i] = (byte) ('0' + v % 10);
+				v /= 10;
+			} while (v != 0);
+		}
+		else
+		{
+			int i = end;
+			do
+			{
+				out.put(--i, (byte) ('0' + v % 10));
+				v /= 10;
+			} while (v != 0);
+		}
+		out.position(end);
+	}
+
+
+	private static void appendFactor(StringBuilder out, int i, long p, int m)
+	{
+		if (i > 0)
+			out.append(" * ");
+		out.append(p);
+		if (m > 1)
+			out.append('^').append(m);
+	}
+
+
+	private static void appendDigits(Appendable out, long v) throws IOException
+	{
+		long pow = 1;
+		for (int n = digitCount(v); n > 1; n--)
+			pow *= 10;
+		for (; pow > 0; pow /= 10)
+			out.append((char) ('0' + v / pow % 10));
+	}
+
+
+	private static int digitCount(long v)
+	{
+		int n = 1;
+		for (long bound = 10; n < MAX_DIGITS && v >= bound; bound *= 10)
+			n++;
+		return n;
+	}
+
+
+	// -------
+	// Parsing
+	// -------
+
+	/**
+	 * @param s
+	 * @return the factorization written in s
+	 * @throws NumberFormatException if s is not in the form above, or a base is not a prime
+	 */
+	public static PrimeFactorization parse(CharSequence s) throws NumberFormatException
+	{
+		return parse(s, 0, s.length(), true);
+	}
+
+
+	/**
+	 * Parses s[start, end).  Spaces around "*" and "^" are optional, and so is the order of the
+	 * factors: a prime that appears more than once has its multiplicities added.  "1" and the
+	 * empty string both stand for 1.
+	 *
+	 * Testing the bases with PrimeFactorization.isPrime dominates the cost for large primes; text
+	 * this library wrote itself can skip it.
+	 *
+	 * @param s
+	 * @param start
+	 * @param end
+	 * @param checkPrimes  true to reject bases that are not prime
+	 * @return the factorization written in s[start, end)
+	 * @throws NumberFormatException if the text is not in the form above, or checkPrimes is true
+	 *         and a base is not a prime
+	 */
+	public static PrimeFactorization parse(CharSequence s, int start, int end, boolean checkPrimes) throws NumberFormatException
+	{
+		long[] primes = new long[4];
+		int[] multiplicities = new int[4];
+		int size = 0;
+		boolean sorted = true;
+
+		int i = skipSpaces(s, start, end);
+		if (i == end || (s.charAt(i) == '1' && skipSpaces(s, i + 1, end) == end))
+			return new PrimeFactorization();
+
+		while (true)
+		{
+			int digitsEnd = digitsEnd(s, i, end);
+			long p = parseLong(s, i, digitsEnd);
+			i = skipSpaces(s, digitsEnd, end);
+			long m = 1;
+			if (i < end && s.charAt(i) == '^')
+			{
+				i = skipSpaces(s, i + 1, end);
+				digitsEnd = digitsEnd(s, i, end);
+				m = parseLong(s, i, digitsEnd);
+				if (m < 1 || m > Integer.MAX_VALUE)
+					throw error(i, "exponent out of range");
+				i = skipSpaces(s, digitsEnd, end);
+			}
+			if (p < 2 || (checkPrimes && !PrimeFactorization.isPrime(p)))
+				throw error(i, p + " is not a prime");
+
+			if (size == primes.length)
+			{
+				primes = Arrays.copyOf(primes, 2 * size);
+				multiplicities = Arrays.copyOf(multiplicities, 2 * size);
+			}
+			sorted &= size == 0 || primes[size - 1] < p;
+			primes[size] = p;
+			multiplicities[size++] = (int) m;
+
+			if (i == end)
+				break;
+			if (s.charAt(i) != '*')
+				throw error(i, "expected '*'");
+			i = skipSpaces(s, i + 1, end);
+		}
+
+		if (!sorted)
+			size = sortAndMerge(primes, multiplicities, size);
+		return new PrimeFactorization(primes, multiplicities, size);
+	}
+
+
+	/**
+	 * Insertion sort by prime; equal primes are merged.  Factor lists are short.
+	 *
+	 * @return the new size
+	 */
+	private static int sortAndMerge(long[] primes, int[] multiplicities, int size) throws NumberFormatException
+	{
+		for (int i = 1; i < size; i++)
+		{
+			long p = primes[i];
+			int m = multiplicities[i];
+			int j = i - 1;
+			while (j >= 0 && primes[j] > p)
+			{
+				primes[j + 1] = primes[j];
+				multiplicities[j + 1] = multiplicities[j];
+				j--;
+			}
+			primes[j + 1] = p;
+			multiplicities[j + 1] = m;
+		}
+		int k = 0;
+		for (int i = 0; i < size; i++)
+		{
+			if (k > 0 && primes[k - 1] == primes[i])
+			{
+				long m = (long) multiplicities[k - 1] + multiplicities[i];
+				if (m > Integer.MAX_VALUE)
+					throw new NumberFormatException("multiplicity of " + primes[i] + " exceeds Integer.MAX_VALUE");
+				multiplicities[k - 1] = (int) m;
+			}
+			else
+			{
+				primes[k] = primes[i];
+				multiplicities[k++] = multiplicities[i];
+			}
+		}
+		return k;
+	}
+
+
+	private static int skipSpaces(CharSequence s, int i, int end)
+	{
+		while (i < end && s.charAt(i) == ' ')
+			i++;
+		return i;
+	}
+
+
+	private static int digitsEnd(CharSequence s, int i, int end)
+	{
+		while (i < end && s.charAt(i) >= '0' && s.charAt(i) <= '9')
+			i++;
+		return i;
+	}
+
+
+	private static long parseLong(CharSequence s, int start, int end) throws NumberFormatException
+	{
+		if (start == end)
+			throw error(start, "expected a number");
+		long v = 0;
+		for (int i = start; i < end; i++)
+		{
+			int d = s.charAt(i) - '0';
+			if (v > (Long.MAX_VALUE - d) / 10)
+				throw error(start, "number exceeds the range of long");
+			v = 10 * v + d;
+		}
+		return v;
+	}
+
+
+	private static NumberFormatException error(int i, String message)
+	{
+		return new NumberFormatException(message + " at index " + i);
+	}
+}
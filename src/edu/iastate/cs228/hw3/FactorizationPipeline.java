@@ -0,0 +1,239 @@
+package edu.iastate.cs228.hw3;
+
+/**
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+public class FactorizationPipeline
+{
+	/**
+	 * Numbers read and handed to the pool at a time.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 4096;
+
+	private final BatchFactorizer factorizer;
+	private final ForkJoinPool pool;
+	private final boolean ordered;
+	private final int batchSize;
+	private final int maxInFlight;
+
+
+	/**
+	 * Default strategy in the common pool, output in input order.
+	 */
+	public FactorizationPipeline()
+	{
+		this(PrimeFactorization.DEFAULT_STRATEGY, ForkJoinPool.commonPool(), true, DEFAULT_BATCH_SIZE);
+	}
+
+
+	/**
+	 * @param strategy   factorization method; called from several threads at once
+	 * @param pool       pool that factors the batches
+	 * @param ordered    true to write results in input order; false to write each batch as soon as
+	 *                   it is done, so that one slow number does not hold up the ones after it
+	 * @param batchSize  numbers per batch
+	 * @throws IllegalArgumentException if batchSize < 1
+	 */
+	public FactorizationPipeline(FactorizationStrategy strategy, ForkJoinPool pool, boolean ordered, int batchSize) throws IllegalArgumentException
+	{
+		if (batchSize < 1)
+			throw new IllegalArgumentException("batchSize is less than 1");
+
+		this.factorizer = new BatchFactorizer(strategy, pool);
+		this.pool = pool;
+		this.ordered = ordered;
+		this.batchSize = batchSize;
+		this.maxInFlight = 2 * pool.getParallelism() + 1;
+	}
+
+
+	/**
+	 * Reads every number from in, factors it and writes it to out.  The calling thread reads and
+	 * writes while the pool factors; at most about twice the pool's parallelism batches are held
+	 * at once, so memory stays bounded whatever the input size.
+	 *
+	 * @param in
+	 * @param out  not flushed or closed
+	 * @return number of numbers processed
+	 * @throws IOException if reading or writing fails
+	 * @throws IllegalArgumentException if the input holds a number less than 1 or is malformed
+	 * @throws CancellationException if the calling thread is interrupted
+	 */
+	public long run(MappedLongReader in, FactorizationWriter out) throws IOException, IllegalArgumentException
+	{
+		ArrayDeque<Future<Batch>> pending = new ArrayDeque<>();
+		CompletionService<Batch> done = new ExecutorCompletionService<>(pool);
+		int inFlight = 0;
+		long count = 0;
+		boolean end = false;
+
+		try
+		{
+			while (true)
+			{
+				while (!end && inFlight < maxInFlight)
+				{
+					long[] ns = new long[batchSize];
+					int k = in.read(ns);
+					if (k < 0)
+					{
+						end = true;
+						break;
+					}
+					Batch batch = new Batch(ns, k);
+					Future<Batch> f = ordered ? pool.submit(batch) : done.submit(batch);
+					pending.add(f);
+					inFlight++;
+				}
+				if (inFlight == 0)
+					return count;
+
+				Future<Batch> next = ordered ? pending.poll() : done.take();
+				if (!ordered)
+					pending.remove(next);
+				inFlight--;
+				Batch batch = next.get();
+				for (int i = 0; i < batch.count; i++)
+					out.write(batch.ns[i], batch.results[i]);
+				count += batch.count;
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new CancellationException("interrupted");
+		}
+		catch (ExecutionException e)
+		{
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			throw new IllegalStateException(cause);
+		}
+		finally
+		{
+			for (Future<Batch> f : pending)
+				f.cancel(true);
+		}
+	}
+
+
+	/**
+	 * The first count numbers of ns, factored by the BatchFactorizer.  Running inside the pool,
+	 * the BatchFactorizer splits the batch further as workers become idle.
+	 */
+	private final class Batch implements Callable<Batch>
+	{
+		final long[] ns;
+		final int count;
+		PrimeFactorization[] results;
+
+		Batch(long[] ns, int count)
+		{
+			this.ns = ns;
+			this.count = count;
+		}
+
+		@Override
+		public Batch call()
+		{
+			results = factorizer.factor(count == ns.length ? ns : Arrays.copyOf(ns, count));
+			return this;
+		}
+	}
+
+
+	/**
+	 * Command-line tool:
+	 *
+	 *   java edu.iastate.cs228.hw3.FactorizationPipeline [-binary] [-unordered] [-rho]
+	 *        [-threads n] [-batch n] input [output]
+	 *
+	 * Reads decimal numbers separated by whitespace, or raw little-endian longs with -binary,
+	 * and writes one line "n\tfactorization" per number to output or standard output.  -rho
+	 * factors with Pollard-Brent rho instead of the default AdaptiveStrategy.
+	 *
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		MappedLongReader.Format format = MappedLongReader.Format.TEXT;
+		boolean ordered = true;
+		FactorizationStrategy strategy = PrimeFactorization.DEFAULT_STRATEGY;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int batchSize = DEFAULT_BATCH_SIZE;
+		Path input = null;
+		Path output = null;
+
+		for (int i = 0; i < args.length; i++)
+		{
+			String a = args[i];
+			if (a.equals("-binary"))
+				format = MappedLongReader.Format.BINARY;
+			else if (a.equals("-unordered"))
+				ordered = false;
+			else if (a.equals("-rho"))
+				strategy = new PollardRho();
+			else if (a.equals("-threads") && i + 1 < args.length)
+				threads = Integer.parseInt(args[++i]);
+			else if (a.equals("-batch") && i + 1 < args.length)
+				batchSize = Integer.parseInt(args[++i]);
+			else if (!a.startsWith("-") && input == null)
+				input = Paths.get(a);
+			else if (!a.startsWith("-") && output == null)
+				output = Paths.get(a);
+			else
+				usage();
+		}
+		if (input == null)
+			usage();
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		WritableByteChannel channel = output == null
+				? Channels.newChannel(new FileOutputStream(FileDescriptor.out))
+				: FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		long start = System.nanoTime();
+		long count;
+		try (MappedLongReader in = new MappedLongReader(input, format);
+			 FactorizationWriter out = new FactorizationWriter(channel))
+		{
+			count = new FactorizationPipeline(strategy, pool, ordered, batchSize).run(in, out);
+		}
+		finally
+		{
+			pool.shutdownNow();
+		}
+		long millis = Math.max(1, (System.nanoTime() - start) / 1000000);
+		System.err.printf("%d numbers in %d ms (%.0f/s)%n", count, millis, count * 1000.0 / millis);
+	}
+
+
+	private static void usage()
+	{
+		System.err.println("usage: FactorizationPipeline [-binary] [-unordered] [-rho] [-threads n] [-batch n] input [output]");
+		System.exit(2);
+	}
+}
@@ -0,0 +1,225 @@
+package edu.iastate.cs228.hw3;
+
+/**
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FactorizationService implements AutoCloseable
+{
+	private static final AtomicInteger THREAD_ID = new AtomicInteger();
+
+	private final FactorizationStrategy strategy;
+	private final Semaphore permits;
+	private final ExecutorService executor;
+	private final ScheduledExecutorService timer;
+	private volatile boolean closed;
+
+
+	/**
+	 * Factors with PrimeFactorization's default strategy, which picks the method by the size of
+	 * each request, so large requests do not fall back to trial division.
+	 *
+	 * @param maxConcurrent  largest number of factorizations running at once
+	 * @throws IllegalArgumentException if maxConcurrent < 1
+	 */
+	public FactorizationService(int maxConcurrent) throws IllegalArgumentException
+	{
+		this(PrimeFactorization.DEFAULT_STRATEGY, maxConcurrent);
+	}
+
+
+	/**
+	 * Every request runs on a thread of its own: a virtual thread when the JVM has them (Java 21
+	 * and later), otherwise a daemon thread from a cached pool.  A semaphore keeps at most
+	 * maxConcurrent requests factoring at once; the others wait for a permit.
+	 *
+	 * @param strategy       factorization method; must check FactorizationStrategy.checkCancelled()
+	 * 						 in its long loops for deadlines and cancellation to take effect
+	 * @param maxConcurrent  largest number of factorizations running at once
+	 * @throws IllegalArgumentException if maxConcurrent < 1
+	 */
+	public FactorizationService(FactorizationStrategy strategy, int maxConcurrent) throws IllegalArgumentException
+	{
+		if (maxConcurrent < 1)
+			throw new IllegalArgumentException("maxConcurrent is less than 1");
+
+		this.strategy = strategy;
+		this.permits = new Semaphore(maxConcurrent);
+		this.executor = newExecutor();
+		this.timer = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "factorization-deadline"));
+	}
+
+
+	/**
+	 * Factors n with no deadline.
+	 *
+	 * @param n
+	 * @return future of the factorization; cancelling it stops the work
+	 * @throws IllegalArgumentException if n < 1
+	 * @throws RejectedExecutionException if the service has been closed
+	 */
+	public CompletableFuture<PrimeFactorization> submit(long n) throws IllegalArgumentException, RejectedExecutionException
+	{
+		return submit(n, 0, TimeUnit.NANOSECONDS);
+	}
+
+
+	/**
+	 * Factors n.  If the result is not ready within timeout, counted from this call and including
+	 * the wait for a permit, the future completes with a TimeoutException and the work is
+	 * abandoned at the strategy's next cancellation check.  Cancelling the future does the same.
+	 *
+	 * @param n
+	 * @param timeout  deadline relative to now, 0 for none
+	 * @param unit
+	 * @return future of the factorization
+	 * @throws IllegalArgumentException if n < 1 or timeout < 0
+	 * @throws RejectedExecutionException if the service has been closed
+	 */
+	public CompletableFuture<PrimeFactorization> submit(long n, long timeout, TimeUnit unit) throws IllegalArgumentException, RejectedExecutionException
+	{
+		if (n < 1)
+			throw new IllegalArgumentException("n is less than 1");
+		if (timeout < 0)
+			throw new IllegalArgumentException("timeout is negative");
+
+		Request request = new Request(n);
+		if (timeout > 0)
+		{
+			ScheduledFuture<?> deadline = timer.schedule(
+					() -> request.result.completeExceptionally(new TimeoutException("deadline of " + timeout + " " + unit + " passed")),
+					timeout, unit);
+			request.result.whenComplete((v, e) -> deadline.cancel(false));
+		}
+		request.result.whenComplete((v, e) -> request.interrupt());
+		executor.execute(request);
+		return request.result;
+	}
+
+
+	/**
+	 * Stops accepting requests and interrupts the running ones.  Every future that is not done
+	 * yet, whether its request is factoring, waiting for a permit or has not started, completes
+	 * with a CancellationException, so no caller blocked in get() or join() is left waiting.
+	 * Requests that finish before they notice the interrupt keep their result.
+	 */
+	@Override
+	public void close()
+	{
+		closed = true;
+		for (Runnable r : executor.shutdownNow())
+			if (r instanceof Request)
+				((Request) r).cancel();
+		timer.shutdownNow();
+	}
+
+
+	/**
+	 * One submitted number.  The worker thread is recorded while it factors so that completing
+	 * the future early, by deadline or cancellation, can interrupt it.
+	 */
+	private final class Request implements Runnable
+	{
+		final long n;
+		final CompletableFuture<PrimeFactorization> result = new CompletableFuture<>();
+		private Thread worker; 			// guarded by this
+
+		Request(long n)
+		{
+			this.n = n;
+		}
+
+		@Override
+		public void run()
+		{
+			if (result.isDone())
+				return;
+			if (closed)
+			{
+				cancel();
+				return;
+			}
+			boolean acquired = false;
+			synchronized (this)
+			{
+				worker = Thread.currentThread();
+			}
+			try
+			{
+				permits.acquire();
+				acquired = true;
+				if (!result.isDone())
+					result.complete(new PrimeFactorization(n, strategy));
+			}
+			catch (InterruptedException | CancellationException e)
+			{
+				// Either the future was completed early, or close() interrupted the worker.
+				cancel();
+			}
+			catch (RuntimeException e)
+			{
+				result.completeExceptionally(e);
+			}
+			finally
+			{
+				if (acquired)
+					permits.release();
+				synchronized (this)
+				{
+					worker = null;
+				}
+				Thread.interrupted(); 		// drop an interrupt that arrived after the work ended
+			}
+		}
+
+		/**
+		 * Completes the future with a CancellationException unless it is done already.
+		 */
+		void cancel()
+		{
+			if (!result.isDone())
+				result.completeExceptionally(new CancellationException("service closed"));
+		}
+
+		synchronized void interrupt()
+		{
+			if (worker != null && worker != Thread.currentThread())
+				worker.interrupt();
+		}
+	}
+
+
+	private static ExecutorService newExecutor()
+	{
+		try
+		{
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+		catch (ReflectiveOperationException e)
+		{
+			return Executors.newCachedThreadPool(r -> daemon(r, "factorization-" + THREAD_ID.incrementAndGet()));
+		}
+	}
+
+
+	private static Thread daemon(Runnable r, String name)
+	{
+		Thread t = new Thread(r, name);
+		t.setDaemon(true);
+		return t;
+	}
+}
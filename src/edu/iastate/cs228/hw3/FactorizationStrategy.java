@@ -0,0 +1,51 @@
+package edu.iastate.cs228.hw3;
+
+/**
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+import java.util.concurrent.CancellationException;
+
+public interface FactorizationStrategy
+{
+	/**
+	 * Factors n and reports its prime factors to out.  Factors may be reported in any order, and
+	 * the same prime may be reported more than once, in which case the multiplicities add up.
+	 * Nothing is reported for n == 1.
+	 *
+	 * @param n
+	 * @param out  receives every prime factor of n with its multiplicity
+	 * @throws IllegalArgumentException if n < 1
+	 * @throws CancellationException if the calling thread is interrupted during a long search
+	 */
+	void factor(long n, FactorConsumer out) throws IllegalArgumentException, CancellationException;
+
+
+	/**
+	 * Cancellation point for the inner loops of strategies.  Interrupting the thread that runs a
+	 * factorization makes the next check abandon it.
+	 *
+	 * @throws CancellationException if the current thread has been interrupted, in which case its
+	 * 								 interrupt status is cleared
+	 */
+	static void checkCancelled() throws CancellationException
+	{
+		if (Thread.interrupted())
+			throw new CancellationException("factorization interrupted");
+	}
+
+
+	/**
+	 * Receiver for the prime factors found by a strategy.
+	 */
+	interface FactorConsumer
+	{
+		/**
+		 * @param prime         a prime factor
+		 * @param multiplicity  number of times it divides the factored number, at least 1
+		 */
+		void accept(long prime, int multiplicity);
+	}
+}
@@ -0,0 +1,89 @@
+package edu.iastate.cs228.hw3;
+
+/**
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+public class FactorizationWriter implements Closeable, Flushable
+{
+	/**
+	 * Size of the direct output buffer.
+	 */
+	public static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * Longest line write can produce: the number, a tab, at most 15 factors (the product of the
+	 * first 16 primes exceeds Long.MAX_VALUE) of at most 19 digits each with " * " and an exponent
+	 * of at most 2 digits, and a newline.
+	 */
+	private static final int MAX_LINE = 20 + 1 + 15 * (3 + 19 + 3) + 1;
+
+	private final WritableByteChannel out;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+
+	/**
+	 * @param out  channel that receives the output; closed by close()
+	 */
+	public FactorizationWriter(WritableByteChannel out)
+	{
+		this.out = out;
+	}
+
+
+	/**
+	 * Writes one line "n\t2 * 3^2 * 17 * 19", the factorization in the form documented by
+	 * PrimeFactorization.toString().  Digits go straight into the buffer, so no String is built.
+	 *
+	 * @param n
+	 * @param pf  factorization of n
+	 * @throws IOException if flushing the buffer fails
+	 */
+	public void write(long n, PrimeFactorization pf) throws IOException
+	{
+		if (buffer.remaining() < MAX_LINE)
+			flush();
+		FactorizationFormat.putDigits(buffer, n);
+		buffer.put((byte) '\t');
+		FactorizationFormat.put(buffer, pf);
+		buffer.put((byte) '\n');
+	}
+
+
+	/**
+	 * Writes out everything buffered so far.
+	 */
+	@Override
+	public void flush() throws IOException
+	{
+		buffer.flip();
+		while (buffer.hasRemaining())
+			out.write(buffer);
+		buffer.clear();
+	}
+
+
+	/**
+	 * Flushes and closes the channel.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		try
+		{
+			flush();
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+}
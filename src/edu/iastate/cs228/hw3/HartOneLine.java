@@ -0,0 +1,119 @@
+package edu.iastate.cs228.hw3;
+
+/**
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+/**
+ * Hart's one-line factoring algorithm.  For i = 1, 2, ... it takes s = ceil(sqrt(480 i n)) and
+ * checks whether s^2 - 480 i n is a square t^2, in which case gcd(s - t, n) is usually a proper
+ * divisor.  The multiplier 480 = 2^5 3 5 makes squares more likely, as Hart suggests.  Each step
+ * costs a square root and a square test, with no modular multiplication, so on composites up to
+ * about 40 bits it is faster than Pollard-Brent rho.  Hart shows that it succeeds within about
+ * n^(1/3) steps when n has no factor below n^(1/3).  Composites from MAX_N on, and any that
+ * survive MAX_ITERATIONS steps, are handed to PollardRho.
+ */
+public class HartOneLine implements FactorizationStrategy
+{
+	/**
+	 * Composites from here on go straight to PollardRho, which is faster there.
+	 */
+	public static final long MAX_N = 1L << 44;
+
+	/**
+	 * Steps tried before giving up on a composite, more than n^(1/3) for every n below MAX_N.
+	 */
+	static final int MAX_ITERATIONS = 1 << 16;
+
+	private static final long MULTIPLIER = 480;
+
+	private final PollardRho fallback;
+
+
+	public HartOneLine()
+	{
+		this.fallback = new PollardRho();
+	}
+
+
+	/**
+	 * Divides out the primes up to PollardRho.DEFAULT_TRIAL_BOUND, then splits what is left with
+	 * Hart's method.  Every part goes back through the primality test and is split again until
+	 * only primes remain.  Factors are not reported in order.
+	 */
+	@Override
+	public void factor(long n, FactorConsumer out) throws IllegalArgumentException
+	{
+		if (n < 1)
+			throw new IllegalArgumentException("n is less than 1");
+
+		long left = PollardRho.divideSmallPrimes(n, PollardRho.DEFAULT_TRIAL_BOUND, out);
+		if (left > 1)
+			split(left, 1, out);
+	}
+
+
+	/**
+	 * Reports the prime factors of n^m.
+	 *
+	 * Precondition: n > 1.
+	 */
+	private void split(long n, int m, FactorConsumer out)
+	{
+		if (Primality.isPrime(n))
+		{
+			out.accept(n, m);
+			return;
+		}
+
+		long d = n < MAX_N ? hart(n) : n;
+		if (d == n)
+		{
+			fallback.factor(n, (p, k) -> out.accept(p, k * m));
+			return;
+		}
+		split(d, m, out);
+		split(n / d, m, out);
+	}
+
+
+	/**
+	 * Precondition: 1 < n < MAX_N and n is composite.
+	 *
+	 * @return a nontrivial divisor of n, or n if none was found within MAX_ITERATIONS steps or
+	 *         before 480 i n leaves the range of long
+	 */
+	static long hart(long n)
+	{
+		long mn = MULTIPLIER * n;
+		long steps = Math.min(MAX_ITERATIONS, Long.MAX_VALUE / 2 / mn);
+		for (long ni = mn; ni <= steps * mn; ni += mn)
+		{
+			long s = PollardRho.squareRoot(ni);
+			if (s * s != ni)
+				s++;
+			long r = s * s - ni; 		// s^2 mod n, up to multiples of n
+			if (isSquare(r))
+			{
+				long g = PollardRho.gcd(s - PollardRho.squareRoot(r), n);
+				if (g > 1 && g < n)
+					return g;
+			}
+		}
+		return n;
+	}
+
+
+	/**
+	 * Rejects most non-squares by their residue mod 64 before taking the square root.
+	 */
+	private static boolean isSquare(long r)
+	{
+		if ((0xFDFDFDEDFDFCFDECL >>> (r & 63) & 1) != 0)
+			return false;
+		long t = PollardRho.squareRoot(r);
+		return t * t == r;
+	}
+}
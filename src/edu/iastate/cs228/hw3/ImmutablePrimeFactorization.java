@@ -0,0 +1,231 @@
+package edu.iastate.cs228.hw3;
+
+/**
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Read-only prime factorization.  The factors are fixed at construction and never exposed, and
+ * value, size and hash code are computed once, so instances can be cached and handed to any
+ * number of threads without copying or locking.  equals and hashCode compare the factors.
+ */
+public final class ImmutablePrimeFactorization implements Iterable<PrimeFactor>
+{
+	private static final long OVERFLOW = -1;
+
+	/**
+	 * The factorization of 1.
+	 */
+	public static final ImmutablePrimeFactorization ONE = new ImmutablePrimeFactorization(new long[0], new int[0]);
+
+	private final long[] primes; 			// increasing
+	private final int[] multiplicities;
+	private final long value;
+	private final int hash;
+
+
+	/**
+	 * Adopts the arrays, which must not be changed afterwards.  Precondition: primes are distinct
+	 * primes in increasing order, multiplicities are positive, and both arrays have the same length.
+	 */
+	ImmutablePrimeFactorization(long[] primes, int[] multiplicities)
+	{
+		this.primes = primes;
+		this.multiplicities = multiplicities;
+
+		long v = 1;
+		int h = 1;
+		for (int i = 0; i < primes.length; i++)
+		{
+			if (v != OVERFLOW)
+			{
+				long power = PrimeFactorization.powExact(primes[i], multiplicities[i]);
+				v = power == OVERFLOW ? OVERFLOW : multiplyExact(v, power);
+			}
+			h = 31 * (31 * h + Long.hashCode(primes[i])) + multiplicities[i];
+		}
+		this.value = v;
+		this.hash = h;
+	}
+
+
+	/**
+	 * Factors n with PrimeFactorization's default strategy.
+	 *
+	 * @param n
+	 * @return the factorization of n
+	 * @throws IllegalArgumentException if n < 1
+	 */
+	public static ImmutablePrimeFactorization of(long n) throws IllegalArgumentException
+	{
+		return new PrimeFactorization(n).toImmutable();
+	}
+
+
+	/**
+	 * @param pf
+	 * @return an immutable copy of pf
+	 */
+	public static ImmutablePrimeFactorization of(PrimeFactorization pf)
+	{
+		return pf.toImmutable();
+	}
+
+
+	/**
+	 * @return a new mutable factorization with the same factors
+	 */
+	public PrimeFactorization toMutable()
+	{
+		return new PrimeFactorization(this);
+	}
+
+
+	/**
+	 * @return number of distinct prime factors
+	 */
+	public int size()
+	{
+		return primes.length;
+	}
+
+
+	/**
+	 * @return the represented value, or -1 if valueOverflow()
+	 */
+	public long value()
+	{
+		return value;
+	}
+
+
+	/**
+	 * @return true if the represented value exceeds the range of long
+	 */
+	public boolean valueOverflow()
+	{
+		return value == OVERFLOW;
+	}
+
+
+	/**
+	 * @param i
+	 * @return the i-th smallest prime factor
+	 * @throws IndexOutOfBoundsException if i < 0 or i >= size()
+	 */
+	public long primeAt(int i) throws IndexOutOfBoundsException
+	{
+		return primes[i];
+	}
+
+
+	/**
+	 * @param i
+	 * @return multiplicity of the i-th smallest prime factor
+	 * @throws IndexOutOfBoundsException if i < 0 or i >= size()
+	 */
+	public int exponentAt(int i) throws IndexOutOfBoundsException
+	{
+		return multiplicities[i];
+	}
+
+
+	/**
+	 * Binary search; unlike PrimeFactorization.containsPrimeFactor, p is not tested for primality.
+	 *
+	 * @param p
+	 * @return true if p is one of the prime factors
+	 */
+	public boolean containsPrimeFactor(long p)
+	{
+		return Arrays.binarySearch(primes, p) >= 0;
+	}
+
+
+	/**
+	 * @return the factors as new PrimeFactor objects, in increasing order
+	 */
+	public PrimeFactor[] toArray()
+	{
+		PrimeFactor[] arr = new PrimeFactor[primes.length];
+		for (int i = 0; i < arr.length; i++)
+			arr[i] = new PrimeFactor(primes[i], multiplicities[i]);
+		return arr;
+	}
+
+
+	/**
+	 * The iterator returns a new PrimeFactor for every factor and does not support remove().
+	 */
+	@Override
+	public Iterator<PrimeFactor> iterator()
+	{
+		return new Iterator<PrimeFactor>()
+		{
+			private int index = 0;
+
+			@Override
+			public boolean hasNext()
+			{
+				return index < primes.length;
+			}
+
+			@Override
+			public PrimeFactor next()
+			{
+				if (index == primes.length)
+					throw new NoSuchElementException();
+				PrimeFactor pf = new PrimeFactor(primes[index], multiplicities[index]);
+				index++;
+				return pf;
+			}
+		};
+	}
+
+
+	@Override
+	public boolean equals(Object o)
+	{
+		if (o == this)
+			return true;
+		if (!(o instanceof ImmutablePrimeFactorization))
+			return false;
+		ImmutablePrimeFactorization other = (ImmutablePrimeFactorization) o;
+		return hash == other.hash && value == other.value
+				&& Arrays.equals(primes, other.primes) && Arrays.equals(multiplicities, other.multiplicities);
+	}
+
+
+	@Override
+	public int hashCode()
+	{
+		return hash;
+	}
+
+
+	/**
+	 * Same form as PrimeFactorization.toString(), for instance "2 * 3^2 * 17 * 19".
+	 */
+	@Override
+	public String toString()
+	{
+		return FactorizationFormat.appendTo(new StringBuilder(12 * primes.length), this).toString();
+	}
+
+
+	/**
+	 * Precondition: a, b >= 1.
+	 *
+	 * @return a * b, or OVERFLOW
+	 */
+	private static long multiplyExact(long a, long b)
+	{
+		return a > Long.MAX_VALUE / b ? OVERFLOW : a * b;
+	}
+}
@@ -0,0 +1,201 @@
+package edu.iastate.cs228.hw3;
+
+/**
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class MappedLongReader implements Closeable
+{
+	/**
+	 * Layout of the input file.
+	 */
+	public enum Format
+	{
+		/**
+		 * Decimal numbers separated by whitespace, normally one per line.
+		 */
+		TEXT,
+
+		/**
+		 * Raw 8-byte little-endian longs, nothing in between.
+		 */
+		BINARY
+	}
+
+
+	/**
+	 * Bytes mapped at a time.  A multiple of 8, so that BINARY windows never split a long.
+	 */
+	private static final long WINDOW = 1L << 26;
+
+	/**
+	 * A TEXT token is only parsed once at least this many bytes of it are mapped, or the file
+	 * ends.  Longer tokens are rejected.
+	 */
+	private static final int MAX_TOKEN = 24;
+
+	private final FileChannel channel;
+	private final Format format;
+	private final long fileSize;
+
+	private MappedByteBuffer window;
+	private long windowStart; 		// file offset of window position 0
+	private long line = 1; 			// current line, for error messages
+
+
+	/**
+	 * Opens path for reading and maps its first window.
+	 *
+	 * @param path
+	 * @param format
+	 * @throws IOException if the file cannot be opened
+	 */
+	public MappedLongReader(Path path, Format format) throws IOException
+	{
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		this.format = format;
+		this.fileSize = channel.size();
+		map(0);
+	}
+
+
+	/**
+	 * Reads up to dst.length numbers.  No object is created per number: TEXT is parsed digit by
+	 * digit out of the mapped bytes and BINARY is read straight from them.
+	 *
+	 * @param dst
+	 * @return number of values stored at the front of dst, or -1 at the end of the file
+	 * @throws IOException if the file cannot be mapped
+	 * @throws NumberFormatException if a TEXT token is not a decimal long, or a BINARY file is not
+	 *         a whole number of longs
+	 */
+	public int read(long[] dst) throws IOException, NumberFormatException
+	{
+		int count = format == Format.TEXT ? readText(dst) : readBinary(dst);
+		return count == 0 && dst.length > 0 ? -1 : count;
+	}
+
+
+	@Override
+	public void close() throws IOException
+	{
+		window = null;
+		channel.close();
+	}
+
+
+	private int readBinary(long[] dst) throws IOException
+	{
+		int count = 0;
+		while (count < dst.length)
+		{
+			if (window.remaining() < 8)
+			{
+				long position = windowStart + window.position();
+				if (position == fileSize)
+					break;
+				if (fileSize - position < 8)
+					throw new NumberFormatException("file size " + fileSize + " is not a multiple of 8");
+				map(position);
+			}
+			dst[count++] = window.getLong();
+		}
+		return count;
+	}
+
+
+	private int readText(long[] dst) throws IOException
+	{
+		int count = 0;
+		while (count < dst.length)
+		{
+			if (!skipWhitespace())
+				break;
+			ensureMapped(MAX_TOKEN);
+			dst[count++] = parseLong();
+		}
+		return count;
+	}
+
+
+	/**
+	 * Moves past spaces, tabs and line breaks, remapping as needed.
+	 *
+	 * @return true if a token follows, false at the end of the file
+	 */
+	private boolean skipWhitespace() throws IOException
+	{
+		while (true)
+		{
+			while (window.hasRemaining())
+			{
+				byte b = window.get(window.position());
+				if (b == '\n')
+					line++;
+				else if (b != ' ' && b != '\t' && b != '\r')
+					return true;
+				window.position(window.position() + 1);
+			}
+			long position = windowStart + window.position();
+			if (position == fileSize)
+				return false;
+			map(position);
+		}
+	}
+
+
+	/**
+	 * Parses the token at the window position, which ensureMapped has made contiguous.
+	 */
+	private long parseLong()
+	{
+		long n = 0;
+		while (window.hasRemaining())
+		{
+			byte b = window.get(window.position());
+			if (b == ' ' || b == '\t' || b == '\r' || b == '\n')
+				break;
+			int d = b - '0';
+			if (d < 0 || d > 9)
+				throw new NumberFormatException("line " + line + ": unexpected character '" + (char) b + "'");
+			if (n > (Long.MAX_VALUE - d) / 10)
+				throw new NumberFormatException("line " + line + ": number exceeds the range of long");
+			n = 10 * n + d;
+			window.position(window.position() + 1);
+		}
+		if (!window.hasRemaining() && windowStart + window.limit() < fileSize)
+			throw new NumberFormatException("line " + line + ": token longer than " + MAX_TOKEN + " characters");
+		return n;
+	}
+
+
+	/**
+	 * Remaps so that at least bytes bytes from the current position are mapped, or everything up
+	 * to the end of the file.
+	 */
+	private void ensureMapped(int bytes) throws IOException
+	{
+		long position = windowStart + window.position();
+		if (window.remaining() < bytes && windowStart + window.limit() < fileSize)
+			map(position);
+	}
+
+
+	private void map(long position) throws IOException
+	{
+		long length = Math.min(WINDOW, fileSize - position);
+		window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+		window.order(ByteOrder.LITTLE_ENDIAN);
+		windowStart = position;
+	}
+}
@@ -0,0 +1,156 @@
+package edu.iastate.cs228.hw3;
+
+/**
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+public final class Montgomery
+{
+	private final long n; 		// odd modulus
+	private final long nInv; 	// n^-1 mod 2^64
+	private final long r2; 		// 2^128 mod n
+	private final long one; 	// 1 in Montgomery form, i.e. 2^64 mod n
+
+
+	/**
+	 * Arithmetic modulo n in Montgomery form with R = 2^64.  Residues are longs in [0, n).
+	 *
+	 * @param n  odd modulus
+	 * @throws IllegalArgumentException if n < 3 or n is even
+	 */
+	public Montgomery(long n) throws IllegalArgumentException
+	{
+		if (n < 3 || (n & 1) == 0)
+			throw new IllegalArgumentException("modulus must be odd and greater than 2");
+
+		this.n = n;
+
+		long x = n;					// correct to 3 bits since n * n == 1 mod 8
+		for (int j = 0; j < 5; j++)
+			x *= 2 - n * x;
+		nInv = x;
+
+		long r = Long.remainderUnsigned(-1L, n) + 1;
+		if (r == n)
+			r = 0;
+		one = r;
+
+		for (int j = 0; j < 64; j++)
+			r = add(r, r);
+		r2 = r;
+	}
+
+
+	/**
+	 * @return the modulus
+	 */
+	public long modulus()
+	{
+		return n;
+	}
+
+	/**
+	 * @return 1 in Montgomery form
+	 */
+	public long one()
+	{
+		return one;
+	}
+
+	/**
+	 * @param a  0 <= a < n
+	 * @return a in Montgomery form
+	 */
+	public long toMontgomery(long a)
+	{
+		return multiply(a, r2);
+	}
+
+	/**
+	 * @param a  residue in Montgomery form
+	 * @return the ordinary residue represented by a
+	 */
+	public long fromMontgomery(long a)
+	{
+		return reduce(0, a);
+	}
+
+
+	/**
+	 * @param a  residue in Montgomery form
+	 * @param b  residue in Montgomery form
+	 * @return a * b in Montgomery form
+	 */
+	public long multiply(long a, long b)
+	{
+		return reduce(unsignedMultiplyHigh(a, b), a * b);
+	}
+
+	/**
+	 * @return a + b mod n, for residues in either form
+	 */
+	public long add(long a, long b)
+	{
+		long s = a + b; 				// < 2n < 2^64, compare as unsigned
+		return Long.compareUnsigned(s, n) >= 0 ? s - n : s;
+	}
+
+	/**
+	 * @return a - b mod n, for residues in either form
+	 */
+	public long subtract(long a, long b)
+	{
+		long d = a - b;
+		return d < 0 ? d + n : d;
+	}
+
+	/**
+	 * @param a  residue in Montgomery form
+	 * @param e  exponent, e >= 0
+	 * @return a^e in Montgomery form
+	 */
+	public long pow(long a, long e)
+	{
+		long result = one;
+		while (e > 0)
+		{
+			if ((e & 1) == 1)
+				result = multiply(result, a);
+			a = multiply(a, a);
+			e >>>= 1;
+		}
+		return result;
+	}
+
+
+	/**
+	 * REDC: computes (hi * 2^64 + lo) / 2^64 mod n for a product of two residues.
+	 */
+	private long reduce(long hi, long lo)
+	{
+		long m = lo * nInv;
+		long t = hi - unsignedMultiplyHigh(m, n);
+		return t < 0 ? t + n : t;
+	}
+
+
+	/**
+	 * Upper 64 bits of the unsigned 128-bit product a * b.
+	 *
+	 * @param a
+	 * @param b
+	 * @return high word of a * b
+	 */
+	public static long unsignedMultiplyHigh(long a, long b)
+	{
+		long aLo = a & 0xFFFFFFFFL, aHi = a >>> 32;
+		long bLo = b & 0xFFFFFFFFL, bHi = b >>> 32;
+
+		long lolo = aLo * bLo;
+		long hilo = aHi * bLo + (lolo >>> 32);
+		long lohi = aLo * bHi + (hilo & 0xFFFFFFFFL);
+		return aHi * bHi + (hilo >>> 32) + (lohi >>> 32);
+	}
+}
@@ -0,0 +1,226 @@
+package edu.iastate.cs228.hw3;
+
+/**
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+public class PollardRho implements FactorizationStrategy
+{
+	public static final int DEFAULT_TRIAL_BOUND = 1 << 10;
+
+	private static final int BATCH = 128; 		// differences multiplied together per gcd
+
+	private final int trialBound;
+
+
+	/**
+	 * Trial division up to DEFAULT_TRIAL_BOUND, then Pollard-Brent rho.
+	 */
+	public PollardRho()
+	{
+		this(DEFAULT_TRIAL_BOUND);
+	}
+
+
+	/**
+	 * @param trialBound  primes up to this bound are divided out before rho takes over; they are
+	 * 					  taken from the shared PrimeTable
+	 * @throws IllegalArgumentException if trialBound < 2 or trialBound > PrimeTable.MAX_BOUND
+	 */
+	public PollardRho(int trialBound) throws IllegalArgumentException
+	{
+		if (trialBound < 2)
+			throw new IllegalArgumentException("trialBound is less than 2");
+		PrimeTable.atLeast(trialBound);
+		this.trialBound = trialBound;
+	}
+
+
+	/**
+	 * Divides out the primes of the trial table, then splits whatever is left with Pollard-Brent
+	 * rho.  Every part that rho produces goes back through the primality test and is split again
+	 * until only primes remain.  Factors are not reported in order.
+	 */
+	@Override
+	public void factor(long n, FactorConsumer out) throws IllegalArgumentException
+	{
+		if (n < 1)
+			throw new IllegalArgumentException("n is less than 1");
+
+		long left = divideSmallPrimes(n, trialBound, out);
+		if (left > 1)
+			split(left, 1, out);
+	}
+
+
+	/**
+	 * Divides the primes up to bound out of n, in increasing order, and reports them to out.
+	 * Stops early once p * p exceeds what is left.  Shared by the strategies that trial divide
+	 * before their main method.
+	 *
+	 * @param n      n >= 1
+	 * @param bound  largest prime tried, at most PrimeTable.MAX_BOUND
+	 * @param out
+	 * @return the cofactor, which has no prime factor up to bound; below bound^2 it is 1 or a prime
+	 */
+	static long divideSmallPrimes(long n, int bound, FactorConsumer out)
+	{
+		long left = n;
+		int[] primes = PrimeTable.atLeast(bound).primes();
+		for (int i = 0; i < primes.length && primes[i] <= bound; i++)
+		{
+			long p = primes[i];
+			if (p * p > left)
+				break;
+			if (left % p == 0)
+			{
+				int m = 0;
+				do
+				{
+					left /= p;
+					m++;
+				} while (left % p == 0);
+				out.accept(p, m);
+			}
+		}
+		return left;
+	}
+
+
+	/**
+	 * Reports the prime factors of n^m.
+	 *
+	 * Precondition: n > 1 has no prime factor in the trial table, unless n itself is prime.
+	 */
+	private void split(long n, int m, FactorConsumer out)
+	{
+		if (Primality.isPrime(n))
+		{
+			out.accept(n, m);
+			return;
+		}
+
+		long root = squareRoot(n);
+		if (root * root == n)
+		{
+			split(root, 2 * m, out);
+			return;
+		}
+
+		long d = n;
+		for (long c = 1; d == n; c++)
+			d = brent(n, c);
+
+		long e = n / d;
+		if (d == e)
+		{
+			split(d, 2 * m, out);
+		}
+		else
+		{
+			split(d, m, out);
+			split(e, m, out);
+		}
+	}
+
+
+	/**
+	 * Brent's variant of Pollard's rho with f(y) = y^2 + c, run in Montgomery form.  The
+	 * differences are multiplied together in batches so that one gcd covers BATCH steps; a
+	 * batch that overshoots to n is replayed one step at a time.
+	 *
+	 * Precondition: n is odd, composite and not a perfect square.
+	 *
+	 * @return a nontrivial divisor of n, or n if this choice of c failed
+	 */
+	private static long brent(long n, long c)
+	{
+		Montgomery mont = new Montgomery(n);
+		long cm = mont.toMontgomery(c % n);
+
+		long y = cm;
+		long x = y;
+		long ys = y;
+		long q = mont.one();
+		long g = 1;
+
+		for (long r = 1; g == 1; r <<= 1)
+		{
+			x = y;
+			for (long i = 0; i < r; i++)
+			{
+				if ((i & 0xFFFF) == 0xFFFF)
+					FactorizationStrategy.checkCancelled();
+				y = mont.add(mont.multiply(y, y), cm);
+			}
+
+			for (long k = 0; k < r && g == 1; k += BATCH)
+			{
+				FactorizationStrategy.checkCancelled();
+				ys = y;
+				long steps = Math.min(BATCH, r - k);
+				for (long i = 0; i < steps; i++)
+				{
+					y = mont.add(mont.multiply(y, y), cm);
+					q = mont.multiply(q, mont.subtract(x, y));
+				}
+				g = gcd(q, n);
+			}
+		}
+
+		if (g == n)
+		{
+			do
+			{
+				ys = mont.add(mont.multiply(ys, ys), cm);
+				g = gcd(mont.subtract(x, ys), n);
+			} while (g == 1);
+		}
+		return g;
+	}
+
+
+	/**
+	 * Binary gcd.
+	 *
+	 * @param a  a >= 0
+	 * @param b  b > 0
+	 * @return gcd of a and b
+	 */
+	static long gcd(long a, long b)
+	{
+		if (a == 0)
+			return b;
+		int shift = Long.numberOfTrailingZeros(a | b);
+		a >>>= Long.numberOfTrailingZeros(a);
+		while (b != 0)
+		{
+			b >>>= Long.numberOfTrailingZeros(b);
+			if (a > b)
+			{
+				long t = a;
+				a = b;
+				b = t;
+			}
+			b -= a;
+		}
+		return a << shift;
+	}
+
+
+	/**
+	 * @param n  n >= 0
+	 * @return largest r with r * r <= n
+	 */
+	static long squareRoot(long n)
+	{
+		long r = (long) Math.sqrt(n);
+		while (r > 0 && r > n / r)
+			r--;
+		while (r + 1 <= n / (r + 1))
+			r++;
+		return r;
+	}
+}
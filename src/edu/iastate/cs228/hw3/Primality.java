@@ -0,0 +1,85 @@
+package edu.iastate.cs228.hw3;
+
+/**
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+public final class Primality
+{
+	/**
+	 * Miller-Rabin witnesses that together have no strong pseudoprime below 2^64 (J. Sinclair).
+	 */
+	private static final long[] WITNESSES = { 2, 325, 9375, 28178, 450775, 9780504, 1795265022 };
+
+	private static final int[] SMALL_DIVISORS = { 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41, 43, 47 };
+
+
+	private Primality()
+	{
+	}
+
+
+	/**
+	 * Deterministic primality test for the full range of long.  Numbers covered by the shared
+	 * PrimeTable are looked up in its bitmap, the rest are screened by a few small divisors and
+	 * then run through Miller-Rabin with a witness set that is exact below 2^64.
+	 *
+	 * @param n
+	 * @return true if n is a prime
+	 * 		   false otherwise, in particular for n < 2
+	 */
+	public static boolean isPrime(long n)
+	{
+		PrimeSieve table = PrimeTable.current();
+		if (n <= table.bound())
+			return n >= 2 && table.isPrime(n);
+		if ((n & 1) == 0)
+			return false;
+		for (int p : SMALL_DIVISORS)
+			if (n % p == 0)
+				return false;
+		return millerRabin(n);
+	}
+
+
+	/**
+	 * Precondition: n is odd and n > 47.
+	 */
+	private static boolean millerRabin(long n)
+	{
+		Montgomery mont = new Montgomery(n);
+
+		long d = n - 1;
+		int s = Long.numberOfTrailingZeros(d);
+		d >>>= s;
+
+		long one = mont.one();
+		long minusOne = mont.subtract(0, one);
+
+		for (long a : WITNESSES)
+		{
+			long base = a % n;
+			if (base == 0)
+				continue;
+
+			long x = mont.pow(mont.toMontgomery(base), d);
+			if (x == one || x == minusOne)
+				continue;
+
+			boolean composite = true;
+			for (int r = 1; r < s && composite; r++)
+			{
+				x = mont.multiply(x, x);
+				if (x == minusOne)
+					composite = false;
+				else if (x == one)
+					return false;
+			}
+			if (composite)
+				return false;
+		}
+		return true;
+	}
+}
@@ -8,7 +8,7 @@ package edu.iastate.cs228.hw3;
 
 public class PrimeFactor 
 {
-	public int prime; 		 // prime factor
+	public long prime; 		 // prime factor
 	public int multiplicity; // number of times the prime factor appears in a factorization
 
 	/**
@@ -18,7 +18,7 @@ public class PrimeFactor
 	 * @param m  multiplicity
 	 * @throws IllegalArgumentException if m < 1 
 	 */
-	public PrimeFactor(int p, int m) throws IllegalArgumentException
+	public PrimeFactor(long p, int m) throws IllegalArgumentException
 	{
 		if(m<1) throw new IllegalArgumentException();
 		
@@ -40,7 +40,7 @@ public class PrimeFactor
 	public String toString() 
 	{
 		if(multiplicity == 1) {
-			return ""+prime;
+			return Long.toString(prime);
 		}
 		else {
 			return prime + "^" + multiplicity;
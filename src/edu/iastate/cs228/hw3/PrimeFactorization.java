@@ -6,26 +6,45 @@ package edu.iastate.cs228.hw3;
  *
  */
 
+import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
 
 import edu.iastate.cs228.hw3.PrimeFactorization.PrimeFactorizationIterator;
 
 public class PrimeFactorization implements Iterable<PrimeFactor>
 {
 	private static final long OVERFLOW = -1;
+	
+	/**
+	 * Engine used to factor plain long arguments, with the thresholds calibrated for this machine
+	 * if AdaptiveStrategy has stored any.  Shared with FactorAccumulator and FactorizationService. 
+	 */
+	static final FactorizationStrategy DEFAULT_STRATEGY = AdaptiveStrategy.defaultStrategy();
+	
+	private static final int INITIAL_CAPACITY = 4;
+	
+	// Merge operations on two sorted factor lists, see merge(). 
+	private static final int MULTIPLY = 0;
+	private static final int DIVIDE = 1;
+	private static final int GCD = 2;
+	private static final int LCM = 3;
+	
 	private long value; 	// the factored integer 
 							// it is set to OVERFLOW when the number is greater than 2^63-1, the
 						    // largest number representable by the type long. 
 	
 	/**
-	 * Reference to dummy node at the head.
+	 * Distinct prime factors in increasing order.  Only the first size entries are in use. 
 	 */
-	private Node head;
+	private long[] primes;
 	  
 	/**
-	 * Reference to dummy node at the tail.
+	 * multiplicities[i] is the multiplicity of primes[i]. 
 	 */
-	private Node tail;
+	private int[] multiplicities;
 	
 	private int size;     	// number of distinct prime factors
 
@@ -42,69 +61,42 @@ public class PrimeFactorization implements Iterable<PrimeFactor>
 	public PrimeFactorization() 
 	{	 
 		value = 1;
-		head = new Node();
-		tail = new Node();
-		head.next = tail;
-		tail.previous = head;
-		size = 1;
+		primes = new long[INITIAL_CAPACITY];
+		multiplicities = new int[INITIAL_CAPACITY];
+		size = 0;
 	}
 
 	
 	/** 
-	 * Obtains the prime factorization of n and creates a doubly linked list to store the result.   
-	 * Follows the direct search factorization algorithm in Section 1.2 of the project description. 
+	 * Obtains the prime factorization of n and stores the result in increasing order of primes.   
+	 * The method is picked by AdaptiveStrategy from the size of n: a table lookup for small n, 
+	 * otherwise trial division by the small primes and then, for what is left, trial division, 
+	 * Hart's method, Pollard-Brent rho or ECM. 
 	 * 
 	 * @param n
 	 * @throws IllegalArgumentException if n < 1
 	 */
 	public PrimeFactorization(long n) throws IllegalArgumentException 
 	{
+		this(n, DEFAULT_STRATEGY);
+	}
+	
+	
+	/** 
+	 * Obtains the prime factorization of n with the given strategy, for instance PollardRho 
+	 * when n may have two large prime factors. 
+	 * 
+	 * @param n
+	 * @param strategy  factorization method
+	 * @throws IllegalArgumentException if n < 1
+	 */
+	public PrimeFactorization(long n, FactorizationStrategy strategy) throws IllegalArgumentException 
+	{
+		this();
 		if (n < 1)
 			throw new IllegalArgumentException("N is less than 1");
-		head = new Node();
-		tail = new Node();
-		head.next = tail;
-		tail.previous = head;
-		
-		Node last = head;
-		int prime = 2;
-		int lastNum = 0;
-		long left = n;
 		
-		while(!isPrime(left))
-		{
-			if (Math.floorMod(left, prime) == 0)
-			{
-				if (prime != lastNum)
-				{
-					link(last, new Node(prime, 1));
-					size++;
-					lastNum = prime;
-					last = last.next;
-				}
-				else
-				{
-					last.pFactor.multiplicity++;
-				}
-			}
-			else
-			{
-				if(prime == 2)
-					prime ++;
-				else
-					prime += 2;
-			}
-		}
-		if (lastNum != left)
-		{
-			link(last, new Node(prime, 1));
-			size++;
-		}
-		else
-		{
-			last.pFactor.multiplicity++;
-		}
-		updateValue();
+		strategy.factor(n, this::add);
 	}
 	
 	
@@ -115,23 +107,10 @@ public class PrimeFactorization implements Iterable<PrimeFactor>
 	 */
 	public PrimeFactorization(PrimeFactorization pf)
 	{
-		
-		head = new Node();
-		tail = new Node();
-		head.next = tail;
-		tail.previous = head;
-		
-		PrimeFactorizationIterator pfit = pf.iterator();
-		
-		Node current = head;
-		
-		while(pfit.hasNext())
-		{
-			link(current, new Node(pfit.next()));
-			current = current.next;
-			size++;
-		}
-		updateValue();
+		primes = Arrays.copyOf(pf.primes, Math.max(pf.size, INITIAL_CAPACITY));
+		multiplicities = Arrays.copyOf(pf.multiplicities, primes.length);
+		size = pf.size;
+		value = pf.value;
 	}
 	
 	/**
@@ -142,21 +121,55 @@ public class PrimeFactorization implements Iterable<PrimeFactor>
 	 */
 	public PrimeFactorization (PrimeFactor[] pfList)
 	{
-		head = new Node();
-		tail = new Node();
-		head.next = tail;
-		tail.previous = head;
-		
-		Node last = head;
-		
+		this();
 		for(int j = 0; j < pfList.length; j++)
+			add(pfList[j].prime, pfList[j].multiplicity);
+	}
+	
+	
+	/**
+	 * Takes over the given arrays without copying them. 
+	 * 
+	 * Precondition: primes[0..size) are distinct primes in increasing order and the 
+	 * multiplicities are positive. 
+	 */
+	PrimeFactorization(long[] primes, int[] multiplicities, int size)
+	{
+		this.primes = primes;
+		this.multiplicities = multiplicities;
+		this.size = size;
+		updateValue();
+	}
+	
+	
+	/**
+	 * As above, with the value already known. 
+	 */
+	private PrimeFactorization(long[] primes, int[] multiplicities, int size, long value)
+	{
+		this.primes = primes;
+		this.multiplicities = multiplicities;
+		this.size = size;
+		this.value = value;
+	}
+	
+	
+	/**
+	 * Copy constructor from the immutable form.  Copies two arrays; nothing is recomputed. 
+	 * 
+	 * @param ipf
+	 */
+	public PrimeFactorization(ImmutablePrimeFactorization ipf)
+	{
+		size = ipf.size();
+		primes = new long[Math.max(size, INITIAL_CAPACITY)];
+		multiplicities = new int[primes.length];
+		for (int i = 0; i < size; i++)
 		{
-			Node add = new Node(pfList[j]);
-			this.link(last, add);
-			last = add;
-			size++;
+			primes[i] = ipf.primeAt(i);
+			multiplicities[i] = ipf.exponentAt(i);
 		}
-		updateValue();
+		value = ipf.value();
 	}
 	
 	
@@ -166,8 +179,9 @@ public class PrimeFactorization implements Iterable<PrimeFactor>
 	// --------------
 	
     /**
-	 * Test if a number is a prime or not.  Check iteratively from 2 to the largest 
-	 * integer not exceeding the square root of n to see if it divides n. 
+	 * Test if a number is a prime or not.  Numbers covered by the shared PrimeTable are looked 
+	 * up in its bitmap; larger ones go through a deterministic Miller-Rabin test that is exact for 
+	 * the whole range of long. 
 	 * 
 	 *@param n
 	 *@return true if n is a prime 
@@ -175,17 +189,7 @@ public class PrimeFactorization implements Iterable<PrimeFactor>
 	 */
     public static boolean isPrime(long n) 
 	{
-	    int sqrt = (int)Math.sqrt(n);
-	    
-	    if (Math.floorMod(n, 2) == 0)
-	    	return false;
-	    
-	    for(int j = 3; j <= sqrt; j += 2)
-	    {
-	    	if (Math.floorMod(n, j) == 0)
-	    		return false;
-	    }
-		return true; 
+	    return Primality.isPrime(n); 
 	}   
 
    
@@ -195,9 +199,9 @@ public class PrimeFactorization implements Iterable<PrimeFactor>
 	
 	/**
 	 * Multiplies the integer v represented by this object with another number n.  Note that v may 
-	 * be too large (in which case this.value == OVERFLOW). You can do this in one loop: Factor n and 
-	 * traverse the doubly linked list simultaneously. For details refer to Section 3.1 in the 
-	 * project description. Store the prime factorization of the product. Update value and size. 
+	 * be too large (in which case this.value == OVERFLOW). The factors of n are added to the sorted 
+	 * arrays as they are found. For details refer to Section 3.1 in the project description. Store 
+	 * the prime factorization of the product. Update value and size. 
 	 * 
 	 * @param n
 	 * @throws IllegalArgumentException if n < 1
@@ -207,90 +211,35 @@ public class PrimeFactorization implements Iterable<PrimeFactor>
 		if (n < 1)
 			throw new IllegalArgumentException("N is less than 1");
 		
-		Node last = head;
-		int prime = 2;
-		int lastNum = 0;
-		long left = n;
-		
-		while(!isPrime(left))
-		{
-			if (Math.floorMod(left, prime) == 0)
-			{
-				if (prime != lastNum)
-				{
-					link(last, new Node(prime, 1));
-					lastNum = prime;
-					last = last.next;
-				}
-				else
-				{
-					last.pFactor.multiplicity++;
-				}
-			}
-			else
-			{
-				if(prime == 2)
-					prime ++;
-				else
-					prime += 2;
-			}
-		}
-		if (lastNum != left)
-		{
-			link(last, new Node(prime, 1));
-		}
-		else
-		{
-			last.pFactor.multiplicity++;
-		}
-		updateValue();
+		DEFAULT_STRATEGY.factor(n, this::add);
 	}
 	
 	/**
 	 * Multiplies the represented integer v with another number in the factorization form.  Traverse both 
-	 * linked lists and store the result in this list object.  See Section 3.1 in the project description 
-	 * for details of algorithm. 
+	 * factor lists once in a merge and store the result in this object.  See Section 3.1 in the project 
+	 * description for details of algorithm. 
 	 * 
 	 * @param pf 
+	 * @throws ArithmeticException if a multiplicity exceeds Integer.MAX_VALUE
 	 */
-	public void multiply(PrimeFactorization pf)
+	public void multiply(PrimeFactorization pf) throws ArithmeticException
 	{
-		for(PrimeFactor x: pf) {
-			add(x.prime, x.multiplicity);
-		}
-		updateValue();
+		assign(merge(this, pf, MULTIPLY));
 	}
 	
 	
 	/**
-	 * Multiplies the integers represented by two PrimeFactorization objects.  
+	 * Multiplies the integers represented by two PrimeFactorization objects by merging their 
+	 * factor lists.  The values are never multiplied out, so the product may overflow a long. 
 	 * 
 	 * @param pf1
 	 * @param pf2
 	 * @return object of PrimeFactorization to represent the product 
+	 * @throws ArithmeticException if a multiplicity exceeds Integer.MAX_VALUE
 	 */
-	public static PrimeFactorization multiply(PrimeFactorization pf1, PrimeFactorization pf2)
+	public static PrimeFactorization multiply(PrimeFactorization pf1, PrimeFactorization pf2) throws ArithmeticException
 	{
-		PrimeFactorizationIterator pfit1 = pf1.iterator();
-		PrimeFactorizationIterator pfit2 = pf2.iterator();
-		
-		long total = 1;
-		
-		while(pfit1.hasNext())
-		{
-			PrimeFactor temp = pfit1.next();
-			for(int j = 0; j < temp.multiplicity; j ++)
-				total = total * temp.prime;
-		}
-		
-		while(pfit2.hasNext())
-		{
-			PrimeFactor temp = pfit2.next();
-			for(int j = 0; j < temp.multiplicity; j ++)
-				total = total * temp.prime;
-		}
-		
-		return new PrimeFactorization(total); 
+		return merge(pf1, pf2, MULTIPLY); 
 	}
 
 	
@@ -308,7 +257,7 @@ public class PrimeFactorization implements Iterable<PrimeFactor>
 		if(n<=0) 
 			throw new IllegalArgumentException();
 		
-		if(value < n) 
+		if(value != OVERFLOW && value % n != 0) 
 			return false;
 		
 		return dividedBy(new PrimeFactorization(n));
@@ -316,9 +265,9 @@ public class PrimeFactorization implements Iterable<PrimeFactor>
 
 	
 	/**
-	 * Division where the divisor is represented in the factorization form.  Update the linked 
-	 * list of this object accordingly by removing those nodes housing prime factors that disappear  
-	 * after the division.  No update if this number is not divisible by pf. Algorithm details are 
+	 * Division where the divisor is represented in the factorization form.  Update the factors 
+	 * of this object accordingly by removing those prime factors that disappear after the 
+	 * division.  No update if this number is not divisible by pf. Algorithm details are 
 	 * given in Section 3.2. 
 	 * 
 	 * @param pf
@@ -327,35 +276,14 @@ public class PrimeFactorization implements Iterable<PrimeFactor>
 	 */
 	public boolean dividedBy(PrimeFactorization pf)
 	{
-		if(value < pf.value) 
+		if (value != OVERFLOW && (pf.value == OVERFLOW || value % pf.value != 0)) 
 			return false;
-		if(value!=-1 && pf.value==-1) 
+		
+		PrimeFactorization quotient = merge(this, pf, DIVIDE);
+		if (quotient == null)
 			return false;
 		
-		if(value == pf.value) 
-		{
-			clearList();
-			return true;
-		}
-		else
-		{
-			PrimeFactorization dupe = new PrimeFactorization(this);
-			PrimeFactorizationIterator pfit = pf.iterator();
-			PrimeFactor target;
-				
-			while(pfit.hasNext())
-			{
-				target = pfit.next();
-				if(!dupe.remove(target.prime, target.multiplicity)) 
-					return false;		
-			}
-			
-			this.head = dupe.head;
-			this.tail = dupe.tail;
-			this.size = dupe.size;
-			
-			updateValue();
-		}
+		assign(quotient);
 		return true;
 	}
 
@@ -372,103 +300,7 @@ public class PrimeFactorization implements Iterable<PrimeFactor>
 	 */
 	public static PrimeFactorization dividedBy(PrimeFactorization pf1, PrimeFactorization pf2)
 	{
-		PrimeFactorization out = null;
-		
-		if (pf1.value == PrimeFactorization.gcd(pf1, pf2).value);
-		{
-			PrimeFactorizationIterator pfit1 = pf1.iterator();
-			PrimeFactorizationIterator pfit2 = pf2.iterator();
-			
-			PrimeFactor temp1 = pfit1.next();
-			PrimeFactor temp2 = pfit2.next();
-			int count = 0;
-			
-			while(pfit2.hasNext())
-			{
-				if (temp1.prime == temp2.prime)
-				{
-					if(temp1.multiplicity > temp2.multiplicity)
-						count++;
-					temp2 = pfit2.next();
-					temp1 = pfit1.next();
-				}
-				else
-				{
-					count++;
-					temp1 = pfit1.next();
-				}
-			}
-			if (temp1.prime == temp2.prime)
-			{
-				if(temp1.multiplicity > temp2.multiplicity)
-					count++;
-				temp1 = pfit1.next();
-			}
-			else
-			{
-				count++;
-				temp1 = pfit1.next();
-			}
-			while(pfit1.hasNext())
-			{
-				pfit1.next();
-				count++;
-			}
-			
-			PrimeFactor arry[] = new PrimeFactor[count];
-			
-			pfit1 = pf1.iterator();
-			pfit2 = pf2.iterator();
-			
-			temp1 = pfit1.next();
-			temp2 = pfit2.next();
-			count = 0;
-			
-			while(pfit2.hasNext())
-			{
-				if (temp1.prime == temp2.prime)
-				{
-					if(temp1.multiplicity > temp2.multiplicity)
-					{
-						arry[count] = new PrimeFactor(temp1.prime, temp1.multiplicity - temp2.multiplicity);
-						count++;
-					}
-					temp2 = pfit2.next();
-					temp1 = pfit1.next();
-				}
-				else
-				{
-					arry[count] = new PrimeFactor(temp1.prime, temp1.multiplicity);
-					count++;
-					temp1 = pfit1.next();
-				}
-			}
-			if (temp1.prime == temp2.prime)
-			{
-				if(temp1.multiplicity > temp2.multiplicity)
-				{
-					arry[count] = new PrimeFactor(temp1.prime, temp1.multiplicity - temp2.multiplicity);
-					count++;
-				}
-				temp1 = pfit1.next();
-			}
-			else
-			{
-				arry[count] = new PrimeFactor(temp1.prime, temp1.multiplicity);
-				count++;
-				temp1 = pfit1.next();
-			}
-			while(pfit1.hasNext())
-			{
-				temp1 = pfit1.next();
-				arry[count] = new PrimeFactor(temp1.prime, temp1.multiplicity);
-				count++;
-			}
-			arry[count] = new PrimeFactor(temp1.prime, temp1.multiplicity);
-			count++;
-			
-		}
-		return out; 
+		return merge(pf1, pf2, DIVIDE); 
 	}
 
 	
@@ -540,85 +372,7 @@ public class PrimeFactorization implements Iterable<PrimeFactor>
 	 */
 	public static PrimeFactorization gcd(PrimeFactorization pf1, PrimeFactorization pf2)
 	{
-		PrimeFactorizationIterator pfit1 = pf1.iterator();
-		PrimeFactorizationIterator pfit2 = pf2.iterator();
-		
-		Boolean cont = true;
-		int count = 0;
-		PrimeFactor next1 = pfit1.next();
-		PrimeFactor next2 = pfit2.next();
-		
-		while(cont)
-		{
-			if (next1.prime == next2.prime)
-				count++;
-			else
-			{
-				if (next1.prime > next2.prime)
-				{
-					if(pfit2.hasNext())
-						next2 = pfit2.next();
-					else
-						cont = false;
-				}
-				else
-				{
-					if(pfit1.hasNext())
-						next1 = pfit1.next();
-					else
-						cont = false;
-				}
-			}
-		}
-		
-		if (count == 0)
-			return new PrimeFactorization();
-		
-		PrimeFactor arry[] = new PrimeFactor[count];
-		
-		pfit1 = pf1.iterator();
-		pfit2 = pf2.iterator();
-		cont = true;
-		next1 = pfit1.next();
-		next2 = pfit2.next();
-		count = 0;
-		
-		while(cont)
-		{
-			if (next1.prime == next2.prime)
-			{
-				if (next1.multiplicity >= next2.multiplicity)
-				{
-					arry[count] = new PrimeFactor(next1.prime, next2.multiplicity);
-					count++;
-				}
-				else
-				{
-					arry[count] = new PrimeFactor(next1.prime, next1.multiplicity);
-					count++;
-				}
-			}
-			else
-			{
-				if (next1.prime > next2.prime)
-				{
-					if(pfit2.hasNext())
-						next2 = pfit2.next();
-					else
-						cont = false;
-				}
-				else
-				{
-					if(pfit1.hasNext())
-						next1 = pfit1.next();
-					else
-						cont = false;
-				}
-			}
-		}
-		
-		PrimeFactorization out = new PrimeFactorization(arry);
-		return out; 
+		return merge(pf1, pf2, GCD); 
 	}
 
 	
@@ -662,135 +416,266 @@ public class PrimeFactorization implements Iterable<PrimeFactor>
 	 */
 	public static PrimeFactorization lcm(PrimeFactorization pf1, PrimeFactorization pf2)
 	{
-		PrimeFactorizationIterator pfit1 = pf1.iterator();
-		PrimeFactorizationIterator pfit2 = pf2.iterator();
-		
-		Boolean cont = true;
-		int count = 0;
-		PrimeFactor next1 = pfit1.next();
-		PrimeFactor next2 = pfit2.next();
-		
-		while(cont)
+		return merge(pf1, pf2, LCM);
+	}
+
+	
+	// -----------------
+	// Divisor Functions
+	// -----------------
+	
+	/**
+	 * Number of divisors tau(v), the product of m + 1 over the factors p^m.  O(size()). 
+	 * 
+	 * @return tau(v), or -1 if it exceeds the range of long
+	 */
+	public long divisorCount()
+	{
+		long t = 1;
+		for (int i = 0; i < size && t != OVERFLOW; i++)
+			t = times(t, multiplicities[i] + 1L);
+		return t;
+	}
+	
+	
+	/**
+	 * @return tau(v) exactly, also when divisorCount() overflows
+	 */
+	public BigInteger bigDivisorCount()
+	{
+		BigInteger t = BigInteger.ONE;
+		for (int i = 0; i < size; i++)
+			t = t.multiply(BigInteger.valueOf(multiplicities[i] + 1L));
+		return t;
+	}
+	
+	
+	/**
+	 * Sum of the divisors sigma(v), the product of 1 + p + ... + p^m over the factors p^m.  The 
+	 * geometric sums are accumulated term by term, and a term beyond the range of long ends the 
+	 * computation, so no prime costs more than 63 steps. 
+	 * 
+	 * @return sigma(v), or -1 if it exceeds the range of long
+	 */
+	public long divisorSum()
+	{
+		long s = 1;
+		for (int i = 0; i < size && s != OVERFLOW; i++)
 		{
-			if (next1.prime == next2.prime)
-				count++;
-			else
+			long p = primes[i];
+			long term = 1;
+			long sum = 1;
+			for (int j = 0; j < multiplicities[i] && sum != OVERFLOW; j++)
 			{
-				if (next1.prime > next2.prime)
-				{
-					if(pfit2.hasNext())
-					{
-						next2 = pfit2.next();
-						count++;
-					}
-					else
-					{
-						if(pfit1.hasNext())
-						{
-							next1 = pfit1.next();
-							count++;
-						}
-						else
-							cont = false;
-					}
-				}
-				else
-				{
-					if(pfit1.hasNext())
-					{
-						next1 = pfit1.next();
-						count++;
-					}
-					else
-					{
-						if(pfit2.hasNext())
-						{
-							next2 = pfit2.next();
-							count++;
-						}
-						else
-							cont = false;
-				
-					}
-				}
+				term = times(term, p);
+				sum = term == OVERFLOW || sum > Long.MAX_VALUE - term ? OVERFLOW : sum + term;
 			}
+			s = times(s, sum);
+		}
+		return s;
+	}
+	
+	
+	/**
+	 * @return sigma(v) exactly, also when divisorSum() overflows
+	 */
+	public BigInteger bigDivisorSum()
+	{
+		BigInteger s = BigInteger.ONE;
+		for (int i = 0; i < size; i++)
+		{
+			BigInteger p = BigInteger.valueOf(primes[i]);
+			s = s.multiply(p.pow(multiplicities[i] + 1).subtract(BigInteger.ONE).divide(p.subtract(BigInteger.ONE)));
+		}
+		return s;
+	}
+	
+	
+	/**
+	 * Euler's totient phi(v), the product of p^(m-1) * (p - 1) over the factors p^m.  Since 
+	 * phi(v) <= v, it is never -1 unless valueOverflow(). 
+	 * 
+	 * @return phi(v), or -1 if it exceeds the range of long
+	 */
+	public long totient()
+	{
+		long t = 1;
+		for (int i = 0; i < size && t != OVERFLOW; i++)
+			t = times(times(t, primes[i] - 1), powExact(primes[i], multiplicities[i] - 1));
+		return t;
+	}
+	
+	
+	/**
+	 * @return phi(v) exactly, also when totient() overflows
+	 */
+	public BigInteger bigTotient()
+	{
+		BigInteger t = BigInteger.ONE;
+		for (int i = 0; i < size; i++)
+		{
+			BigInteger p = BigInteger.valueOf(primes[i]);
+			t = t.multiply(p.subtract(BigInteger.ONE)).multiply(p.pow(multiplicities[i] - 1));
+		}
+		return t;
+	}
+	
+	
+	/**
+	 * Enumerates the divisors of v lazily with an odometer over the exponents, in O(1) amortized 
+	 * time and no allocation per divisor; use nextLong() to avoid boxing.  The order is 1, p, p^2, 
+	 * ..., q, p q, ... for the smallest primes p < q.  The iterator works on a copy of the factor 
+	 * list, so later changes to this object do not affect it.  When valueOverflow(), only the 
+	 * divisors within the range of long are returned. 
+	 * 
+	 * @return iterator over the divisors 
+	 */
+	public PrimitiveIterator.OfLong divisors()
+	{
+		return new Divisors.Odometer(primes, multiplicities, size);
+	}
+	
+	
+	/**
+	 * As divisors(), but in increasing order.  Each divisor costs O(log h), where the heap size h 
+	 * grows by at most one per divisor returned. 
+	 * 
+	 * @return iterator over the divisors in increasing order
+	 */
+	public PrimitiveIterator.OfLong sortedDivisors()
+	{
+		return new Divisors.Sorted(primes, multiplicities, size);
+	}
+
+	
+	// ----------------
+	// Powers and Roots
+	// ----------------
+	
+	/**
+	 * Raises the represented integer v to the k-th power by scaling every multiplicity in one pass, 
+	 * O(size()).  The new multiplicities are computed in long arithmetic and all checked before any 
+	 * is stored, so a failure leaves this object unchanged.  value becomes value^k by squaring. 
+	 * 
+	 * @param k
+	 * @throws IllegalArgumentException if k < 0
+	 * @throws ArithmeticException if a multiplicity would exceed Integer.MAX_VALUE
+	 */
+	public void pow(long k) throws IllegalArgumentException, ArithmeticException
+	{
+		if (k < 0)
+			throw new IllegalArgumentException("k is less than 0");
+		if (k == 0)
+		{
+			clearList();
+			return;
 		}
 		
-		if (count == 0)
-			return new PrimeFactorization();
-		
-		PrimeFactor arry[] = new PrimeFactor[count];
-		
-		pfit1 = pf1.iterator();
-		pfit2 = pf2.iterator();
-		cont = true;
-		next1 = pfit1.next();
-		next2 = pfit2.next();
-		count = 0;
+		for (int i = 0; i < size; i++)
+			Math.toIntExact(Math.multiplyExact(multiplicities[i], k));
+		for (int i = 0; i < size; i++)
+			multiplicities[i] *= k;
+		if (value != OVERFLOW)
+			value = powExact(value, k);
+	}
+	
+	
+	/**
+	 * @param pf
+	 * @param k
+	 * @return a new object representing pf^k 
+	 * @throws IllegalArgumentException if k < 0
+	 * @throws ArithmeticException if a multiplicity would exceed Integer.MAX_VALUE
+	 */
+	public static PrimeFactorization pow(PrimeFactorization pf, long k) throws IllegalArgumentException, ArithmeticException
+	{
+		PrimeFactorization result = new PrimeFactorization(pf);
+		result.pow(k);
+		return result;
+	}
+	
+	
+	/**
+	 * Tells whether v = x^k for some integer x and k >= 2, which holds exactly when the gcd of the 
+	 * multiplicities is at least 2.  1 = 1^2 counts as a perfect power.  O(size()). 
+	 * 
+	 * @return true if v is a perfect power
+	 */
+	public boolean isPerfectPower()
+	{
+		int g = 0;
+		for (int i = 0; i < size && g != 1; i++)
+			g = g == 0 ? multiplicities[i] : (int) Euclidean(multiplicities[i], g);
+		return g != 1;
+	}
+	
+	
+	/**
+	 * Computes the k-th root of v by dividing every multiplicity by k, O(size()). 
+	 * 
+	 * @param k
+	 * @return a new object representing the k-th root if v is a k-th power 
+	 *         null otherwise
+	 * @throws IllegalArgumentException if k < 1
+	 */
+	public PrimeFactorization kthRoot(long k) throws IllegalArgumentException
+	{
+		if (k < 1)
+			throw new IllegalArgumentException("k is less than 1");
 		
-		while(cont)
+		for (int i = 0; i < size; i++)
+			if (multiplicities[i] % k != 0)
+				return null;
+		long[] p = Arrays.copyOf(primes, Math.max(size, INITIAL_CAPACITY));
+		int[] m = new int[p.length];
+		for (int i = 0; i < size; i++)
+			m[i] = (int) (multiplicities[i] / k);
+		return new PrimeFactorization(p, m, size);
+	}
+	
+	
+	/**
+	 * Largest square dividing v: every multiplicity rounded down to an even number.  v is the 
+	 * product of squarePart() and squareFreePart().  O(size()). 
+	 * 
+	 * @return a new object representing the square part of v
+	 */
+	public PrimeFactorization squarePart()
+	{
+		return splitSquare(true);
+	}
+	
+	
+	/**
+	 * Square-free part of v: the primes of odd multiplicity, each once.  v divided by squarePart(). 
+	 * O(size()). 
+	 * 
+	 * @return a new object representing the square-free part of v
+	 */
+	public PrimeFactorization squareFreePart()
+	{
+		return splitSquare(false);
+	}
+	
+	
+	/**
+	 * @param square  true for the even parts of the multiplicities, false for the odd ones
+	 */
+	private PrimeFactorization splitSquare(boolean square)
+	{
+		long[] p = new long[Math.max(size, INITIAL_CAPACITY)];
+		int[] m = new int[p.length];
+		int k = 0;
+		for (int i = 0; i < size; i++)
 		{
-			if (next1.prime == next2.prime)
-			{
-				if (next1.multiplicity >= next2.multiplicity)
-				{
-					arry[count] = new PrimeFactor(next1.prime, next1.multiplicity);
-					count++;
-				}
-				else
-				{
-					arry[count] = new PrimeFactor(next1.prime, next2.multiplicity);
-					count++;
-				}
-			}
-			else
+			int e = square ? multiplicities[i] & ~1 : multiplicities[i] & 1;
+			if (e > 0)
 			{
-				if (next1.prime > next2.prime)
-				{
-					if(pfit2.hasNext())
-					{	
-						arry[count] = new PrimeFactor(next2.prime, next2.multiplicity);
-						next2 = pfit2.next();
-						count++;
-					}
-					else
-					{
-						if(pfit1.hasNext())
-						{
-							arry[count] = new PrimeFactor(next1.prime, next1.multiplicity);
-							next1 = pfit1.next();
-							count++;
-						}
-						else
-							cont = false;
-					}
-				}
-				else
-				{
-					if(pfit1.hasNext())
-					{
-						arry[count] = new PrimeFactor(next1.prime, next1.multiplicity);
-						next1 = pfit1.next();
-						count++;
-					}
-					else
-					{
-						if(pfit2.hasNext())
-						{
-							arry[count] = new PrimeFactor(next2.prime, next2.multiplicity);
-							next2 = pfit2.next();
-							count++;
-						}
-						else
-							cont = false;
-				
-					}
-				}
+				p[k] = primes[i];
+				m[k++] = e;
 			}
 		}
-		
-		PrimeFactorization out = new PrimeFactorization(arry);
-		return out;
+		return new PrimeFactorization(p, m, k);
 	}
 
 	
@@ -799,36 +684,30 @@ public class PrimeFactorization implements Iterable<PrimeFactor>
 	// ------------
 	
 	/**
-	 * Traverses the list to determine if p is a prime factor. 
+	 * Binary search for p among the prime factors.  The primality check of p is a lookup in the 
+	 * shared PrimeTable when p is small enough. 
 	 * 
 	 * Precondition: p is a prime. 
 	 * 
 	 * @param p  
-	 * @return true  if p is a prime factor of the number v represented by this linked list
+	 * @return true  if p is a prime factor of the number v represented by this object
 	 *         false otherwise 
 	 * @throws IllegalArgumentException if p is not a prime
 	 */
-	public boolean containsPrimeFactor(int p) throws IllegalArgumentException
+	public boolean containsPrimeFactor(long p) throws IllegalArgumentException
 	{
 		if(!isPrime(p))
 			throw new IllegalArgumentException("p is not prime");
 		
-		PrimeFactorizationIterator pfit = new PrimeFactorizationIterator();
-    	
-    	while (pfit.hasNext())
-    	{
-    		if (pfit.next().prime == p)
-    			return true;
-    	}
-		return false; 
+		return indexOf(p) >= 0; 
 	}
 	
 	// The next two methods ought to be private but are made public for testing purpose. Keep
 	// them public 
 	
 	/**
-	 * Adds a prime factor p of multiplicity m.  Search for p in the linked list.  If p is found at 
-	 * a node N, add m to N.multiplicity.  Otherwise, create a new node to store p and m. 
+	 * Adds a prime factor p of multiplicity m.  Binary search for p.  If p is found at index i, 
+	 * add m to multiplicities[i].  Otherwise, shift the larger primes up by one and insert p and m. 
 	 *  
 	 * Precondition: p is a prime. 
 	 * 
@@ -836,46 +715,33 @@ public class PrimeFactorization implements Iterable<PrimeFactor>
 	 * @param m  multiplicity
 	 * @return   true  if m >= 1
 	 *           false if m < 1   
+	 * @throws ArithmeticException if the multiplicity of p would exceed Integer.MAX_VALUE
 	 */
-    public boolean add(int p, int m) 
+    public boolean add(long p, int m) throws ArithmeticException
     {
     	if (m < 1)
     		return false;
     	
-    	Boolean found = false;
-    	PrimeFactorizationIterator pfit = new PrimeFactorizationIterator();
-    	
-    	while (pfit.hasNext())
+    	// Factors usually arrive in increasing order, so try the end of the array first. 
+    	int i = size == 0 || primes[size - 1] < p ? -size - 1 : indexOf(p);
+    	if (i >= 0)
     	{
-    		PrimeFactor pf = pfit.next();
-    		if(pf.prime == p)
-    		{
-    			pf.multiplicity += m;
-    			found = true;
-    		}
-    		if (pf.prime >= p)
-    		{
-    			pfit.previous();
-    			pfit.add(new PrimeFactor(p,m));
-    			pfit.next();
-    			found = true;
-    		}
+    		multiplicities[i] = Math.addExact(multiplicities[i], m);
     	}
-    	
-    	if(!found)
+    	else
     	{
-    		pfit.add(new PrimeFactor(p,m));
+    		insert(-i - 1, p, m);
     	}
-    	
+    	multiplyValue(p, m);
     	return true; 
     }
 
 	    
     /**
-     * Removes m from the multiplicity of a prime p on the linked list.  It starts by searching 
-     * for p.  Returns false if p is not found, and true if p is found. In the latter case, let 
-     * N be the node that stores p. If N.multiplicity > m, subtracts m from N.multiplicity.  
-     * If N.multiplicity <= m, removes the node N.  
+     * Removes m from the multiplicity of a prime p.  It starts by a binary search for p.  
+     * Returns false if p is not found, and true if p is found. In the latter case, let i be 
+     * the index of p. If multiplicities[i] > m, subtracts m from multiplicities[i].  
+     * If multiplicities[i] <= m, removes p.  
      * 
      * Precondition: p is a prime. 
      * 
@@ -885,42 +751,78 @@ public class PrimeFactorization implements Iterable<PrimeFactor>
      *         false when p is not found. 
      * @throws IllegalArgumentException if m < 1
      */
-    public boolean remove(int p, int m) throws IllegalArgumentException
+    public boolean remove(long p, int m) throws IllegalArgumentException
     {
-		PrimeFactorizationIterator pfit = new PrimeFactorizationIterator();
+		if (m < 1)
+			throw new IllegalArgumentException("m is less than 1");
+		int i = indexOf(p);
+		if (i < 0)
+			return false;
 		
-		while (pfit.hasNext())
+		if(multiplicities[i] > m)
 		{
-			PrimeFactor pf = pfit.next();
-			if(pf.prime == p)
-			{
-				if(pf.multiplicity > m)
-					pf.multiplicity -= m;
-				else
-					pfit.remove();
-				return true;
-			}
+			multiplicities[i] -= m;
+			divideValue(p, m);
 		}
-    	return false; 
+		else
+		{
+			m = multiplicities[i];
+			delete(i);
+			divideValue(p, m);
+		}
+		return true;
     }
 
 
     /**
+     * Number of distinct prime factors.  The count is kept by insert() and delete() and taken 
+     * over by assign(), so this is O(1). 
      * 
      * @return size of the list
      */
 	public int size() 
 	{
-		int size = 0;
-		PrimeFactorizationIterator pfit = new PrimeFactorizationIterator();
-		
-		while (pfit.hasNext())
-		{
-			size++;
-			pfit.next();
-		}
 		return size; 
 	}
+	
+	
+	/**
+	 * Random access to the factors in increasing order of primes, O(1).  Loops over 
+	 * 0 <= i < size() with primeAt() and exponentAt() avoid the PrimeFactor this allocates. 
+	 * 
+	 * @param i
+	 * @return the i-th smallest prime factor with its multiplicity
+	 * @throws IndexOutOfBoundsException if i < 0 or i >= size()
+	 */
+	public PrimeFactor get(int i) throws IndexOutOfBoundsException
+	{
+		checkIndex(i);
+		return new PrimeFactor(primes[i], multiplicities[i]);
+	}
+	
+	
+	/**
+	 * @param i
+	 * @return the i-th smallest prime factor
+	 * @throws IndexOutOfBoundsException if i < 0 or i >= size()
+	 */
+	public long primeAt(int i) throws IndexOutOfBoundsException
+	{
+		checkIndex(i);
+		return primes[i];
+	}
+	
+	
+	/**
+	 * @param i
+	 * @return multiplicity of the i-th smallest prime factor
+	 * @throws IndexOutOfBoundsException if i < 0 or i >= size()
+	 */
+	public int exponentAt(int i) throws IndexOutOfBoundsException
+	{
+		checkIndex(i);
+		return multiplicities[i];
+	}
 
 	
 	/**
@@ -931,16 +833,7 @@ public class PrimeFactorization implements Iterable<PrimeFactor>
 	@Override 
 	public String toString()
 	{
-		String out = "";
-		
-		PrimeFactorizationIterator pfit = new PrimeFactorizationIterator();
-		
-		while (pfit.hasNext())
-		{
-			out += pfit.next().toString();
-		}
-		
-		return out; 
+		return FactorizationFormat.appendTo(new StringBuilder(12 * size), this).toString();
 	}
 
 	
@@ -962,11 +855,20 @@ public class PrimeFactorization implements Iterable<PrimeFactor>
 	}
 
 	
+	/**
+	 * @return an immutable snapshot of this factorization, which later changes to this object do 
+	 *         not affect
+	 */
+	public ImmutablePrimeFactorization toImmutable()
+	{
+		return new ImmutablePrimeFactorization(Arrays.copyOf(primes, size), Arrays.copyOf(multiplicities, size));
+	}
+	
+	
 	public PrimeFactor[] toArray() {
 		PrimeFactor[] arr = new PrimeFactor[size];
-		int i = 0;
-		for (PrimeFactor pf : this)
-			arr[i++] = pf;
+		for (int i = 0; i < size; i++)
+			arr[i] = new PrimeFactor(primes[i], multiplicities[i]);
 		return arr;
 	}
 
@@ -978,147 +880,83 @@ public class PrimeFactorization implements Iterable<PrimeFactor>
 	    return new PrimeFactorizationIterator();
 	}
 	
-	/**
-	 * Doubly-linked node type for this class.
-	 */
-    private class Node 
-    {
-		public PrimeFactor pFactor;			// prime factor 
-		public Node next;
-		public Node previous;
-		
-		/**
-		 * Default constructor for creating a dummy node.
-		 */
-		public Node()
-		{
-			next = null;
-			previous = null;
-			pFactor = null; 
-		}
-	    
-		/**
-		 * Precondition: p is a prime
-		 * 
-		 * @param p	 prime number 
-		 * @param m  multiplicity 
-		 * @throws IllegalArgumentException if m < 1 
-		 */
-		public Node(int p, int m) throws IllegalArgumentException 
-		{	
-			if (m < 1)
-				throw new IllegalArgumentException("Multiplicity less than 1");
-			pFactor = new PrimeFactor(p, m);
-			next = null;
-			previous = null;
-		}   
-
-		
-		/**
-		 * Constructs a node over a provided PrimeFactor object. 
-		 * 
-		 * @param pf
-		 * @throws IllegalArgumentException
-		 */
-		public Node(PrimeFactor pf)  
-		{
-			pFactor = pf;
-			next = null;
-			previous = null;
-		}
-
-
-		/**
-		 * Printed out in the form: prime + "^" + multiplicity.  For instance "2^3". 
-		 * Also, deal with the case pFactor == null in which a string "dummy" is 
-		 * returned instead.  
-		 */
-		@Override
-		public String toString() 
-		{ 
-			if (pFactor == null)
-				return "Dummy";
-			return pFactor.toString(); 
-		}
-    }
-
-    
+    /**
+     * List iterator over the factors.  It is a view of the arrays: next() and previous() return a 
+     * fresh PrimeFactor holding the current prime and multiplicity, so changes made to the returned 
+     * object are not written back.  Use set() for that. 
+     */
     public class PrimeFactorizationIterator implements ListIterator<PrimeFactor>
     {  	
         // Class invariants: 
-        // 1) logical cursor position is always between cursor.previous and cursor
-        // 2) after a call to next(), cursor.previous refers to the node just returned 
-        // 3) after a call to previous() cursor refers to the node just returned 
-        // 4) index is always the logical index of node pointed to by cursor
+        // 1) logical cursor position is always between index - 1 and index
+        // 2) after a call to next(), pending == index - 1 
+        // 3) after a call to previous(), pending == index 
+        // 4) pending == -1 when there is no element to remove or set
 
-        private Node cursor = head.next;
-        private Node pending = null;    // node pending for removal
         private int index = 0;      
+        private int pending = -1;    // index of the element pending for removal
   	  
-    	// other instance variables ... 
-    	  
       
         /**
     	 * Default constructor positions the cursor before the smallest prime factor.
     	 */
     	public PrimeFactorizationIterator()
     	{
-    		cursor = head.next;
-    		pending = null;
     		index = 0;
+    		pending = -1;
     	}
 
     	@Override
     	public boolean hasNext()
     	{
-    		if (cursor.next == tail)
-    			return false;
-    		return true; 
+    		return index < size; 
     	}
 
     	
     	@Override
     	public boolean hasPrevious()
     	{
-    		if (cursor.previous == head)
-    			return false;
-    		return true;
+    		return index > 0;
     	}
 
  
     	@Override 
     	public PrimeFactor next() 
     	{
-    		pending = cursor;
-    		cursor = cursor.next;
-    		index++;
-    		return cursor.pFactor;
+    		if (!hasNext())
+    			throw new NoSuchElementException();
+    		pending = index++;
+    		return new PrimeFactor(primes[pending], multiplicities[pending]);
     	}
 
  
     	@Override 
     	public PrimeFactor previous() 
     	{
-    		pending = cursor;
-    		cursor = cursor.previous;
-    		index--; 
-    		return pending.pFactor; 
+    		if (!hasPrevious())
+    			throw new NoSuchElementException();
+    		pending = --index;
+    		return new PrimeFactor(primes[pending], multiplicities[pending]); 
     	}
 
    
     	/**
     	 *  Removes the prime factor returned by next() or previous()
     	 *  
-    	 *  @throws IllegalStateException if pending == null 
+    	 *  @throws IllegalStateException if pending == -1 
     	 */
     	@Override
     	public void remove() throws IllegalStateException
     	{
-    		if (pending == null)
-    			throw new IllegalStateException("pending = null");
-    		unlink(pending);
-    		pending = null;
-    		index--;
+    		if (pending == -1)
+    			throw new IllegalStateException("pending = -1");
+    		long p = primes[pending];
+    		int m = multiplicities[pending];
+    		delete(pending);
+    		divideValue(p, m);
+    		if (pending < index)
+    			index--;
+    		pending = -1;
     	}
  
  
@@ -1126,10 +964,8 @@ public class PrimeFactorization implements Iterable<PrimeFactor>
     	 * Adds a prime factor at the cursor position.  The cursor is at a wrong position 
     	 * in either of the two situations below: 
     	 * 
-    	 *    a) pf.prime < cursor.previous.pFactor.prime if cursor.previous != head. 
-    	 *    b) pf.prime > cursor.pFactor.prime if cursor != tail. 
-    	 * 
-    	 * Take into account the possibility that pf.prime == cursor.pFactor.prime. 
+    	 *    a) pf.prime <= primes[index - 1] if index > 0. 
+    	 *    b) pf.prime >= primes[index] if index < size. 
     	 * 
     	 * Precondition: pf.prime is a prime. 
     	 * 
@@ -1139,11 +975,12 @@ public class PrimeFactorization implements Iterable<PrimeFactor>
     	@Override
         public void add(PrimeFactor pf) throws IllegalArgumentException 
         {
-    		if ((cursor.previous != head && pf.prime < cursor.previous.pFactor.prime) || (cursor != tail && pf.prime > cursor.pFactor.prime))
-    			throw new IllegalArgumentException("Adding in worng place");
-    		link(cursor, new Node(pf));
-    		cursor = cursor.next;
+    		if ((index > 0 && pf.prime <= primes[index - 1]) || (index < size && pf.prime >= primes[index]))
+    			throw new IllegalArgumentException("Adding in wrong place");
+    		insert(index, pf.prime, pf.multiplicity);
+    		multiplyValue(pf.prime, pf.multiplicity);
     		index++;
+    		pending = -1;
         }
 
 
@@ -1160,18 +997,29 @@ public class PrimeFactorization implements Iterable<PrimeFactor>
 			return index - 1;
 		}
 
-		@Deprecated
+    	
+    	/**
+    	 * Replaces the multiplicity of the prime factor returned by next() or previous(). 
+    	 * 
+    	 * @param pf  factor with the same prime 
+    	 * @throws IllegalStateException if pending == -1 
+    	 * @throws IllegalArgumentException if pf.prime differs from the prime being replaced or 
+    	 *                                  pf.multiplicity < 1
+    	 */
 		@Override
-		public void set(PrimeFactor pf) 
+		public void set(PrimeFactor pf) throws IllegalStateException, IllegalArgumentException
 		{
-			throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support set method");
+			if (pending == -1)
+				throw new IllegalStateException("pending = -1");
+			if (pf.prime != primes[pending] || pf.multiplicity < 1)
+				throw new IllegalArgumentException("set may only change the multiplicity");
+			int old = multiplicities[pending];
+			multiplicities[pending] = pf.multiplicity;
+			if (pf.multiplicity > old)
+				multiplyValue(pf.prime, pf.multiplicity - old);
+			else if (pf.multiplicity < old)
+				divideValue(pf.prime, old - pf.multiplicity);
 		}
-        
-    	// Other methods you may want to add or override that could possibly facilitate 
-    	// other operations, for instance, addition, access to the previous element, etc.
-    	// 
-    	// ...
-    	// 
     }
 
     
@@ -1180,74 +1028,231 @@ public class PrimeFactorization implements Iterable<PrimeFactor>
     // -------------- 
     
     /**
-     * Inserts toAdd into the list after current without updating size.
+     * Single pass over the two sorted factor lists that builds the result of a binary operation: 
+     * exponents add for MULTIPLY, subtract for DIVIDE, and take the minimum or maximum for GCD and 
+     * LCM.  Costs O(pf1.size() + pf2.size()) and allocates only the result.  The value of a product, 
+     * and of a quotient whose dividend does not overflow, follows from the values of pf1 and pf2 in 
+     * O(1); that of a gcd or lcm is multiplied out from its factors. 
+     * 
+     * @return the result, or null if op == DIVIDE and pf1 is not divisible by pf2 
+     * @throws ArithmeticException if a multiplicity exceeds Integer.MAX_VALUE
+     */
+    private static PrimeFactorization merge(PrimeFactorization pf1, PrimeFactorization pf2, int op) throws ArithmeticException
+    {
+    	int capacity = op == GCD ? Math.min(pf1.size, pf2.size) 
+    	             : op == DIVIDE ? pf1.size : pf1.size + pf2.size;
+    	capacity = Math.max(capacity, INITIAL_CAPACITY);
+    	long[] p = new long[capacity];
+    	int[] m = new int[capacity];
+    	int k = 0;
+    	int i = 0;
+    	int j = 0;
+    	
+    	while (i < pf1.size || j < pf2.size)
+    	{
+    		if (j == pf2.size || (i < pf1.size && pf1.primes[i] < pf2.primes[j]))
+    		{
+    			if (op != GCD)
+    			{
+    				p[k] = pf1.primes[i];
+    				m[k++] = pf1.multiplicities[i];
+    			}
+    			i++;
+    		}
+    		else if (i == pf1.size || pf1.primes[i] > pf2.primes[j])
+    		{
+    			if (op == DIVIDE)
+    				return null;
+    			if (op != GCD)
+    			{
+    				p[k] = pf2.primes[j];
+    				m[k++] = pf2.multiplicities[j];
+    			}
+    			j++;
+    		}
+    		else
+    		{
+    			int a = pf1.multiplicities[i];
+    			int b = pf2.multiplicities[j];
+    			int e;
+    			if (op == MULTIPLY)
+    				e = Math.addExact(a, b);
+    			else if (op == DIVIDE)
+    				e = a - b;
+    			else if (op == GCD)
+    				e = Math.min(a, b);
+    			else
+    				e = Math.max(a, b);
+    			if (e < 0)
+    				return null;
+    			if (e > 0)
+    			{
+    				p[k] = pf1.primes[i];
+    				m[k++] = e;
+    			}
+    			i++;
+    			j++;
+    		}
+    	}
+    	if (op == MULTIPLY)
+    		return new PrimeFactorization(p, m, k, times(pf1.value, pf2.value));
+    	if (op == DIVIDE && pf1.value != OVERFLOW)
+    		return new PrimeFactorization(p, m, k, pf1.value / pf2.value);
+    	return new PrimeFactorization(p, m, k);
+    }
+    
+    
+    /**
+     * Exponentiation by squaring with an overflow check on every product.  Precondition: p >= 1
+     * and m >= 0. 
      * 
-     * Precondition: current != null, toAdd != null
+     * @return p^m, or OVERFLOW if it exceeds the range of long
      */
-    private void link(Node current, Node toAdd)
+    static long powExact(long p, long m)
     {
-    	if(current != null && toAdd != null)
+    	long result = 1;
+    	long base = p;
+    	while (true)
     	{
-    		current.next.previous = toAdd;
-    		toAdd.next = current.next;
-    		toAdd.previous = current;
-    		current.next = toAdd;
+    		if ((m & 1) != 0)
+    		{
+    			if (result > Long.MAX_VALUE / base)
+    				return OVERFLOW;
+    			result *= base;
+    		}
+    		m >>>= 1;
+    		if (m == 0)
+    			return result;
+    		if (base > Long.MAX_VALUE / base)
+    			return OVERFLOW;
+    		base *= base;
     	}
     }
+    
+    
+    /**
+     * Makes this object take over the factors and value of pf. 
+     */
+    private void assign(PrimeFactorization pf)
+    {
+    	primes = pf.primes;
+    	multiplicities = pf.multiplicities;
+    	size = pf.size;
+    	value = pf.value;
+    }
+    
+    
+    /**
+     * The arrays are longer than size, so their own bounds checks do not catch i >= size. 
+     */
+    private void checkIndex(int i)
+    {
+    	if (i < 0 || i >= size)
+    		throw new IndexOutOfBoundsException("index " + i + ", size " + size);
+    }
+    
+    
+    /**
+     * Binary search over the used part of primes. 
+     * 
+     * @return index of p if it is present, otherwise -(insertion point) - 1
+     */
+    private int indexOf(long p)
+    {
+    	return Arrays.binarySearch(primes, 0, size, p);
+    }
+    
+    
+    /**
+     * Inserts p with multiplicity m at index i, growing the arrays if they are full.  Updates size.
+     */
+    private void insert(int i, long p, int m)
+    {
+    	if (m < 1)
+    		throw new IllegalArgumentException("Multiplicity less than 1");
+    	if (size == primes.length)
+    	{
+    		primes = Arrays.copyOf(primes, 2 * size);
+    		multiplicities = Arrays.copyOf(multiplicities, 2 * size);
+    	}
+    	System.arraycopy(primes, i, primes, i + 1, size - i);
+    	System.arraycopy(multiplicities, i, multiplicities, i + 1, size - i);
+    	primes[i] = p;
+    	multiplicities[i] = m;
+    	size++;
+    }
 
 	 
     /**
-     * Removes toRemove from the list without updating size.
+     * Removes the factor at index i.  Updates size.
      */
-    private void unlink(Node toRemove)
+    private void delete(int i)
     {
-    	toRemove.previous.next = toRemove.next;
-    	toRemove.next.previous = toRemove.previous;
-    	toRemove.next = null;
-    	toRemove.previous = null;
+    	System.arraycopy(primes, i + 1, primes, i, size - i - 1);
+    	System.arraycopy(multiplicities, i + 1, multiplicities, i, size - i - 1);
+    	size--;
     }
 
 
     /**
-	  * Remove all the nodes in the linked list except the two dummy nodes. 
+	  * Remove all the prime factors. 
 	  * 
 	  * Made public for testing purpose.  Ought to be private otherwise. 
 	  */
 	public void clearList()
 	{
-		Node n = head.next;
-		while(n != tail)
-		{
-			n = n.next;
-			unlink(n.previous);
-		}
+		size = 0;
+		value = 1;
 	}	
 	
 	/**
-	 * Multiply the prime factors (with multiplicities) out to obtain the represented integer.  
-	 * Use Math.multiply(). If an exception is throw, assign OVERFLOW to the instance variable value.  
-	 * Otherwise, assign the multiplication result to the variable. 
-	 * 
+	 * Multiply the prime factors (with multiplicities) out to obtain the represented integer, one 
+	 * powExact() per prime, and assign OVERFLOW if the product exceeds the range of long.  Only 
+	 * needed when the factor arrays are built wholesale, or when removing factors from an overflowed 
+	 * value may bring it back into range; the list methods otherwise keep value current through 
+	 * multiplyValue() and divideValue(). 
 	 */
 	private void updateValue()
 	{
-		try {		
-			long v = 1;
-			PrimeFactorizationIterator pfit = new PrimeFactorizationIterator();
-			
-			while (pfit.hasNext())
-			{
-				PrimeFactor temp = pfit.next();
-				
-				for (int j = 0; j < temp.multiplicity; j++)
-					v = v * temp.prime;
-			}
-			this.value = v;
-		} 
-			
-		catch (ArithmeticException e) 
-		{
-			value = OVERFLOW;
-		}
+		long v = 1;
+		for (int i = 0; i < size && v != OVERFLOW; i++)
+			v = times(v, powExact(primes[i], multiplicities[i]));
+		value = v;
+	}
+	
+	
+	/**
+	 * Accounts for a factor p^m that has been added to the list.  O(log m). 
+	 */
+	private void multiplyValue(long p, int m)
+	{
+		if (value != OVERFLOW)
+			value = times(value, powExact(p, m));
+	}
+	
+	
+	/**
+	 * Accounts for a factor p^m that has been removed from the list.  The division is exact while 
+	 * value is in range; an overflowed value is multiplied out again, as the quotient may fit. 
+	 */
+	private void divideValue(long p, int m)
+	{
+		if (value != OVERFLOW)
+			value /= powExact(p, m);
+		else
+			updateValue();
+	}
+	
+	
+	/**
+	 * Precondition: a, b >= 1 or OVERFLOW. 
+	 * 
+	 * @return a * b, or OVERFLOW if either factor is OVERFLOW or the product exceeds the range of long
+	 */
+	static long times(long a, long b)
+	{
+		if (a == OVERFLOW || b == OVERFLOW || a > Long.MAX_VALUE / b)
+			return OVERFLOW;
+		return a * b;
 	}
 }
@@ -0,0 +1,152 @@
+package edu.iastate.cs228.hw3;
+
+/**
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+import java.util.Arrays;
+
+public class PrimeSieve
+{
+	private static final int SEGMENT = 1 << 15; 	// odd numbers per segment, sized to stay in L1
+
+	private final int bound; 		// largest number covered by the sieve
+	private final long[] composite; // bit i is set when 2i+1 is composite, odd numbers only
+	private final int[] primes; 	// all primes <= bound in increasing order
+
+
+	/**
+	 * Runs a segmented sieve of Eratosthenes over [2, bound].  The odd numbers are kept in a
+	 * bitset, one bit each, and are crossed off one segment at a time.
+	 *
+	 * @param bound
+	 * @throws IllegalArgumentException if bound < 2 or bound == Integer.MAX_VALUE
+	 */
+	public PrimeSieve(int bound) throws IllegalArgumentException
+	{
+		this(null, bound);
+	}
+
+
+	/**
+	 * Extends a smaller sieve to [2, bound].  The bitset and prime list of smaller are copied and
+	 * only the numbers beyond smaller.bound() are sieved.  smaller itself is not changed.
+	 *
+	 * @param smaller  sieve to extend, or null to start from scratch
+	 * @param bound
+	 * @throws IllegalArgumentException if bound < 2 or bound == Integer.MAX_VALUE
+	 */
+	public PrimeSieve(PrimeSieve smaller, int bound) throws IllegalArgumentException
+	{
+		if (bound < 2 || bound == Integer.MAX_VALUE)
+			throw new IllegalArgumentException("bound out of range");
+		if (smaller != null && smaller.bound >= bound)
+		{
+			this.bound = smaller.bound;
+			composite = smaller.composite;
+			primes = smaller.primes;
+			return;
+		}
+
+		this.bound = bound;
+		int odds = (bound + 1) / 2;			// odd numbers 1, 3, ..., <= bound
+		composite = new long[(odds + 63) >>> 6];
+		composite[0] |= 1L;					// 1 is not a prime
+
+		int done = 1;						// bit indices below done are final
+		if (smaller != null)
+		{
+			System.arraycopy(smaller.composite, 0, composite, 0, smaller.composite.length);
+			done = (smaller.bound + 1) / 2;
+		}
+
+		// Base primes up to sqrt(bound) with a plain sieve, unless they are already known.
+		int root = (int) Math.sqrt(bound);
+		while ((long) (root + 1) * (root + 1) <= bound)
+			root++;
+		if (2 * done - 1 < root)
+		{
+			for (int p = 3; p * p <= root; p += 2)
+				if (!isSet(p >>> 1))
+					for (int q = p * p; q <= root; q += 2 * p)
+						set(q >>> 1);
+			done = (root + 1) >>> 1;
+		}
+
+		// Remaining odd numbers one segment at a time.
+		for (int low = done; low < odds; low += SEGMENT)
+		{
+			int high = Math.min(low + SEGMENT, odds);		// bit indices [low, high)
+			for (int p = 3; p <= root; p += 2)
+			{
+				if (isSet(p >>> 1))
+					continue;
+				long start = Math.max((long) p * p, (2L * low + 1 + p - 1) / p * p);
+				if ((start & 1) == 0)
+					start += p;
+				for (long q = start >>> 1; q < high; q += p)
+					set((int) q);
+			}
+		}
+
+		int from = smaller == null ? 1 : (smaller.bound + 1) / 2;
+		int count = smaller == null ? 1 : smaller.primes.length;
+		for (int i = from; i < odds; i++)
+			if (!isSet(i))
+				count++;
+		primes = smaller == null ? new int[count] : Arrays.copyOf(smaller.primes, count);
+		primes[0] = 2;
+		int j = smaller == null ? 1 : smaller.primes.length;
+		for (int i = from; i < odds; i++)
+			if (!isSet(i))
+				primes[j++] = 2 * i + 1;
+	}
+
+
+	/**
+	 * @param n
+	 * @return true if n is a prime
+	 * @throws IllegalArgumentException if n > bound()
+	 */
+	public boolean isPrime(long n) throws IllegalArgumentException
+	{
+		if (n > bound)
+			throw new IllegalArgumentException("n is beyond the sieve bound");
+		if (n < 3)
+			return n == 2;
+		return (n & 1) == 1 && !isSet((int) (n >>> 1));
+	}
+
+
+	/**
+	 * @return largest number covered by this sieve
+	 */
+	public int bound()
+	{
+		return bound;
+	}
+
+
+	/**
+	 * The table is shared, not copied.  Do not modify it.
+	 *
+	 * @return all primes <= bound() in increasing order
+	 */
+	public int[] primes()
+	{
+		return primes;
+	}
+
+
+	private boolean isSet(int i)
+	{
+		return (composite[i >>> 6] & (1L << i)) != 0;
+	}
+
+	private void set(int i)
+	{
+		composite[i >>> 6] |= 1L << i;
+	}
+}
@@ -0,0 +1,70 @@
+package edu.iastate.cs228.hw3;
+
+/**
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+import java.util.concurrent.atomic.AtomicReference;
+
+public final class PrimeTable
+{
+	/**
+	 * Bound of the table built when the class is loaded.
+	 */
+	public static final int INITIAL_BOUND = 1 << 16;
+
+	/**
+	 * Largest bound the table can grow to.
+	 */
+	public static final int MAX_BOUND = Integer.MAX_VALUE - 1;
+
+	/**
+	 * The current table.  A PrimeSieve is never modified after construction, so readers only need
+	 * the volatile read inside get().  Growth builds a larger copy and publishes it with a
+	 * compare-and-set; no lock is taken.
+	 */
+	private static final AtomicReference<PrimeSieve> TABLE = new AtomicReference<>(new PrimeSieve(INITIAL_BOUND));
+
+
+	private PrimeTable()
+	{
+	}
+
+
+	/**
+	 * @return the table as it is now, covering at least INITIAL_BOUND
+	 */
+	public static PrimeSieve current()
+	{
+		return TABLE.get();
+	}
+
+
+	/**
+	 * Returns a table that covers bound, growing the shared table first if necessary.  The table
+	 * at least doubles on every growth.  Threads that race to grow it may each sieve a copy; one
+	 * copy wins and the others are dropped.
+	 *
+	 * @param bound
+	 * @return a table with bound() >= bound
+	 * @throws IllegalArgumentException if bound > MAX_BOUND
+	 */
+	public static PrimeSieve atLeast(int bound) throws IllegalArgumentException
+	{
+		if (bound > MAX_BOUND)
+			throw new IllegalArgumentException("bound exceeds MAX_BOUND");
+
+		PrimeSieve table = TABLE.get();
+		while (table.bound() < bound)
+		{
+			int target = (int) Math.min(MAX_BOUND, Math.max(bound, 2L * table.bound()));
+			PrimeSieve grown = new PrimeSieve(table, target);
+			if (TABLE.compareAndSet(table, grown))
+				return grown;
+			table = TABLE.get();
+		}
+		return table;
+	}
+}
@@ -0,0 +1,500 @@
+package edu.iastate.cs228.hw3;
+
+/**
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import edu.iastate.cs228.hw3.FactorizationStrategy.FactorConsumer;
+
+/**
+ * Factors every integer of a range [a, b] with a segmented sieve.  The range is cut into segments
+ * of consecutive numbers; within a segment each prime p <= sqrt(b) is divided out of its multiples
+ * only, so a number costs a few divisions by its own small factors instead of a trial division by
+ * every prime up to its square root.  Whatever is left of a number after that is 1 or a prime.
+ *
+ * Segments are sieved in parallel and handed to the caller in increasing order.  Only a bounded
+ * number of segments exists at a time and they are recycled, so memory does not depend on the
+ * length of the range.
+ */
+public class RangeFactorizer
+{
+	/**
+	 * Numbers per segment.  The working array of a segment is 8 bytes per number.
+	 */
+	public static final int DEFAULT_SEGMENT_LENGTH = 1 << 15;
+
+	/**
+	 * Largest b accepted: the base primes up to sqrt(b) come from PrimeTable.
+	 */
+	public static final long MAX_BOUND = (long) PrimeTable.MAX_BOUND * PrimeTable.MAX_BOUND;
+
+	private final ForkJoinPool pool;
+	private final int segmentLength;
+	private final int maxInFlight;
+
+
+	/**
+	 * Default segment length in the common pool.
+	 */
+	public RangeFactorizer()
+	{
+		this(ForkJoinPool.commonPool(), DEFAULT_SEGMENT_LENGTH);
+	}
+
+
+	/**
+	 * Each segment visits every base prime, and a prime larger than the segment length divides at
+	 * most one of its numbers.  Once sqrt(b) is well above the segment length, longer segments
+	 * spread that cost over more numbers.
+	 *
+	 * @param pool           pool that sieves the segments
+	 * @param segmentLength  numbers per segment
+	 * @throws IllegalArgumentException if segmentLength < 1
+	 */
+	public RangeFactorizer(ForkJoinPool pool, int segmentLength) throws IllegalArgumentException
+	{
+		if (segmentLength < 1)
+			throw new IllegalArgumentException("segmentLength is less than 1");
+
+		this.pool = pool;
+		this.segmentLength = segmentLength;
+		this.maxInFlight = 2 * pool.getParallelism() + 1;
+	}
+
+
+	/**
+	 * Factors every number of [a, b] and passes the segments to out in increasing order, on the
+	 * calling thread.  A segment is reused once out returns, so out must not keep it.
+	 *
+	 * @param a
+	 * @param b
+	 * @param out
+	 * @return number of numbers factored, b - a + 1
+	 * @throws IllegalArgumentException if a < 1, b < a or b > MAX_BOUND
+	 * @throws CancellationException if the calling thread is interrupted
+	 */
+	public long factor(long a, long b, SegmentConsumer out) throws IllegalArgumentException
+	{
+		if (a < 1 || b < a || b > MAX_BOUND)
+			throw new IllegalArgumentException("range out of bounds");
+
+		long root = sqrt(b);
+		int[] base = PrimeTable.atLeast((int) Math.max(root, 2)).primes();
+		ArrayDeque<Future<Segment>> pending = new ArrayDeque<>();
+		ArrayDeque<Segment> free = new ArrayDeque<>();
+		long next = a;
+		long count = 0;
+
+		try
+		{
+			while (true)
+			{
+				while (next <= b && pending.size() < maxInFlight)
+				{
+					Segment s = free.isEmpty() ? new Segment(segmentLength) : free.poll();
+					s.low = next;
+					s.count = (int) Math.min(segmentLength, b - next + 1);
+					pending.add(pool.submit(() ->
+					{
+						s.sieve(base);
+						return s;
+					}));
+					next += s.count;
+				}
+				if (pending.isEmpty())
+					return count;
+
+				Segment s = pending.poll().get();
+				out.accept(s);
+				count += s.count;
+				free.add(s);
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new CancellationException("interrupted");
+		}
+		catch (ExecutionException e)
+		{
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			throw new IllegalStateException(cause);
+		}
+		finally
+		{
+			for (Future<Segment> f : pending)
+				f.cancel(true);
+		}
+	}
+
+
+	/**
+	 * Factors every number of [a, b] and passes each with its own PrimeFactorization to out in
+	 * increasing order.  Allocates a PrimeFactorization per number; factor(a, b, SegmentConsumer)
+	 * reads the factors in place.
+	 *
+	 * @param a
+	 * @param b
+	 * @param out
+	 * @return number of numbers factored
+	 * @throws IllegalArgumentException if a < 1, b < a or b > MAX_BOUND
+	 * @throws CancellationException if the calling thread is interrupted
+	 */
+	public long forEach(long a, long b, NumberConsumer out) throws IllegalArgumentException
+	{
+		return factor(a, b, s ->
+		{
+			for (int i = 0; i < s.count; i++)
+				out.accept(s.low + i, s.toPrimeFactorization(i));
+		});
+	}
+
+
+	/**
+	 * @return floor(sqrt(n)) for n >= 0
+	 */
+	private static long sqrt(long n)
+	{
+		long r = (long) Math.sqrt((double) n);
+		while (r * r > n)
+			r--;
+		while ((r + 1) * (r + 1) <= n)
+			r++;
+		return r;
+	}
+
+
+	/**
+	 * Receiver for sieved segments.
+	 */
+	public interface SegmentConsumer
+	{
+		void accept(Segment s);
+	}
+
+
+	/**
+	 * Receiver for single factored numbers.
+	 */
+	public interface NumberConsumer
+	{
+		void accept(long n, PrimeFactorization pf);
+	}
+
+
+	/**
+	 * The factors of the numbers low(), ..., low() + count() - 1.  Number i of the segment is
+	 * low() + i; its factors are stored in increasing order of primes, back to back with those of
+	 * the other numbers, and are read by index.
+	 */
+	public static final class Segment
+	{
+		private long low;
+		private int count;
+
+		private final long[] rest; 			// rest[i]: part of low + i not yet divided out
+		private final int[] offsets; 		// factors of number i are [offsets[i], offsets[i + 1])
+		private long[] primes;
+		private int[] multiplicities;
+
+		// Factors as the sieve finds them, ordered by prime rather than by number.
+		private int found;
+		private int[] foundIndex;
+		private long[] foundPrime;
+		private int[] foundMultiplicity;
+
+
+		private Segment(int length)
+		{
+			rest = new long[length];
+			offsets = new int[length + 1];
+			int capacity = 4 * length;
+			primes = new long[capacity];
+			multiplicities = new int[capacity];
+			foundIndex = new int[capacity];
+			foundPrime = new long[capacity];
+			foundMultiplicity = new int[capacity];
+		}
+
+
+		/**
+		 * @return first number of the segment
+		 */
+		public long low()
+		{
+			return low;
+		}
+
+
+		/**
+		 * @return numbers in the segment
+		 */
+		public int count()
+		{
+			return count;
+		}
+
+
+		/**
+		 * @param i
+		 * @return number of distinct prime factors of low() + i
+		 * @throws IndexOutOfBoundsException if i < 0 or i >= count()
+		 */
+		public int size(int i) throws IndexOutOfBoundsException
+		{
+			checkIndex(i);
+			return offsets[i + 1] - offsets[i];
+		}
+
+
+		/**
+		 * @param i
+		 * @param j
+		 * @return the j-th smallest prime factor of low() + i
+		 * @throws IndexOutOfBoundsException if i or j is out of range
+		 */
+		public long primeAt(int i, int j) throws IndexOutOfBoundsException
+		{
+			return primes[factorIndex(i, j)];
+		}
+
+
+		/**
+		 * @param i
+		 * @param j
+		 * @return multiplicity of the j-th smallest prime factor of low() + i
+		 * @throws IndexOutOfBoundsException if i or j is out of range
+		 */
+		public int exponentAt(int i, int j) throws IndexOutOfBoundsException
+		{
+			return multiplicities[factorIndex(i, j)];
+		}
+
+
+		/**
+		 * Reports the factors of low() + i to out in increasing order.
+		 *
+		 * @param i
+		 * @param out
+		 * @throws IndexOutOfBoundsException if i < 0 or i >= count()
+		 */
+		public void forEach(int i, FactorConsumer out) throws IndexOutOfBoundsException
+		{
+			checkIndex(i);
+			for (int k = offsets[i]; k < offsets[i + 1]; k++)
+				out.accept(primes[k], multiplicities[k]);
+		}
+
+
+		/**
+		 * @param i
+		 * @return a new PrimeFactorization of low() + i
+		 * @throws IndexOutOfBoundsException if i < 0 or i >= count()
+		 */
+		public PrimeFactorization toPrimeFactorization(int i) throws IndexOutOfBoundsException
+		{
+			checkIndex(i);
+			int from = offsets[i];
+			int k = offsets[i + 1] - from;
+			int capacity = Math.max(k, 4);
+			long[] p = new long[capacity];
+			int[] m = new int[capacity];
+			System.arraycopy(primes, from, p, 0, k);
+			System.arraycopy(multiplicities, from, m, 0, k);
+			return new PrimeFactorization(p, m, k);
+		}
+
+
+		private void checkIndex(int i)
+		{
+			if (i < 0 || i >= count)
+				throw new IndexOutOfBoundsException("index " + i + ", count " + count);
+		}
+
+
+		private int factorIndex(int i, int j)
+		{
+			checkIndex(i);
+			if (j < 0 || j >= offsets[i + 1] - offsets[i])
+				throw new IndexOutOfBoundsException("factor " + j + " of index " + i);
+			return offsets[i] + j;
+		}
+
+
+		/**
+		 * Factors [low, low + count).  Powers of 2 come off with a shift; every other base prime p
+		 * with p * p <= low + count - 1 visits its multiples only.  The factors come out grouped
+		 * by prime and are then bucketed by number with a counting sort, which keeps each number's
+		 * primes in increasing order.
+		 *
+		 * @param base  all primes up to at least sqrt(low + count - 1), in increasing order
+		 */
+		private void sieve(int[] base)
+		{
+			long high = low + count - 1;
+			found = 0;
+			for (int i = 0; i < count; i++)
+				rest[i] = low + i;
+
+			for (int i = (int) (low & 1); i < count; i += 2)
+			{
+				int e = Long.numberOfTrailingZeros(rest[i]);
+				rest[i] >>>= e;
+				record(i, 2, e);
+			}
+			for (int k = 1; k < base.length; k++)
+			{
+				long p = base[k];
+				if (p * p > high)
+					break;
+				long r = low % p;
+				for (long j = r == 0 ? 0 : p - r; j < count; j += p)
+				{
+					int i = (int) j;
+					long v = rest[i] / p;
+					int e = 1;
+					while (v % p == 0)
+					{
+						v /= p;
+						e++;
+					}
+					rest[i] = v;
+					record(i, p, e);
+				}
+			}
+			for (int i = 0; i < count; i++)
+				if (rest[i] > 1)
+					record(i, rest[i], 1);
+
+			if (primes.length < found)
+			{
+				primes = new long[foundPrime.length];
+				multiplicities = new int[foundPrime.length];
+			}
+			Arrays.fill(offsets, 0, count + 1, 0);
+			for (int f = 0; f < found; f++)
+				offsets[foundIndex[f] + 1]++;
+			for (int i = 0; i < count; i++)
+				offsets[i + 1] += offsets[i];
+			// offsets[i] is now the start of bucket i and serves as its cursor, which leaves it at
+			// the start of bucket i + 1; shifting by one restores the starts.
+			for (int f = 0; f < found; f++)
+			{
+				int k = offsets[foundIndex[f]]++;
+				primes[k] = foundPrime[f];
+				multiplicities[k] = foundMultiplicity[f];
+			}
+			System.arraycopy(offsets, 0, offsets, 1, count);
+			offsets[0] = 0;
+		}
+
+
+		private void record(int i, long p, int e)
+		{
+			if (found == foundIndex.length)
+			{
+				foundIndex = Arrays.copyOf(foundIndex, 2 * found);
+				foundPrime = Arrays.copyOf(foundPrime, 2 * found);
+				foundMultiplicity = Arrays.copyOf(foundMultiplicity, 2 * found);
+			}
+			foundIndex[found] = i;
+			foundPrime[found] = p;
+			foundMultiplicity[found++] = e;
+		}
+	}
+
+
+	/**
+	 * Command-line tool:
+	 *
+	 *   java edu.iastate.cs228.hw3.RangeFactorizer [-threads n] [-segment n] a b [output]
+	 *
+	 * Writes one line "n\tfactorization" for every n in [a, b] to output or standard output.
+	 *
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		int threads = Runtime.getRuntime().availableProcessors();
+		int segmentLength = DEFAULT_SEGMENT_LENGTH;
+		long[] range = new long[2];
+		int bounds = 0;
+		String output = null;
+
+		for (int i = 0; i < args.length; i++)
+		{
+			String arg = args[i];
+			if (arg.equals("-threads") && i + 1 < args.length)
+				threads = Integer.parseInt(args[++i]);
+			else if (arg.equals("-segment") && i + 1 < args.length)
+				segmentLength = Integer.parseInt(args[++i]);
+			else if (!arg.startsWith("-") && bounds < 2)
+				range[bounds++] = Long.parseLong(arg);
+			else if (!arg.startsWith("-") && output == null)
+				output = arg;
+			else
+				usage();
+		}
+		if (bounds < 2)
+			usage();
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		WritableByteChannel channel = output == null
+				? Channels.newChannel(new FileOutputStream(FileDescriptor.out))
+				: FileChannel.open(Paths.get(output), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		long start = System.nanoTime();
+		long count;
+		try (FactorizationWriter out = new FactorizationWriter(channel))
+		{
+			IOException[] failure = new IOException[1];
+			count = new RangeFactorizer(pool, segmentLength).forEach(range[0], range[1], (n, pf) ->
+			{
+				if (failure[0] != null)
+					return;
+				try
+				{
+					out.write(n, pf);
+				}
+				catch (IOException e)
+				{
+					failure[0] = e;
+				}
+			});
+			if (failure[0] != null)
+				throw failure[0];
+		}
+		finally
+		{
+			pool.shutdownNow();
+		}
+		long millis = Math.max(1, (System.nanoTime() - start) / 1000000);
+		System.err.printf("%d numbers in %d ms (%.0f/s)%n", count, millis, count * 1000.0 / millis);
+	}
+
+
+	private static void usage()
+	{
+		System.err.println("usage: RangeFactorizer [-threads n] [-segment n] a b [output]");
+		System.exit(2);
+	}
+}
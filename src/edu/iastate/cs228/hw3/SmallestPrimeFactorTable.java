@@ -0,0 +1,170 @@
+package edu.iastate.cs228.hw3;
+
+/**
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+import java.util.Arrays;
+
+public class SmallestPrimeFactorTable implements FactorizationStrategy
+{
+	/**
+	 * Largest supported limit.
+	 */
+	public static final int MAX_LIMIT = Integer.MAX_VALUE - 1;
+
+	private final int limit;
+	private final FactorizationStrategy fallback;
+
+	/**
+	 * The odd primes up to sqrt(limit).  Every odd composite up to limit has its smallest prime
+	 * factor in here, and there are fewer than 2^16 of them.
+	 */
+	private final int[] oddPrimes;
+
+	/**
+	 * Entry j describes the odd number 2j + 1: 0 if it is 1 or a prime, otherwise 1 + the index
+	 * of its smallest prime factor in oddPrimes.  Two bytes for every pair of numbers.
+	 */
+	private final char[] spf;
+
+	private final long buildNanos;
+
+
+	/**
+	 * Builds the table up to limit.  Inputs above limit go to PrimeFactorization's default
+	 * strategy.
+	 *
+	 * @param limit
+	 * @throws IllegalArgumentException if limit < 2 or limit > MAX_LIMIT
+	 */
+	public SmallestPrimeFactorTable(int limit) throws IllegalArgumentException
+	{
+		this(limit, PrimeFactorization.DEFAULT_STRATEGY);
+	}
+
+
+	/**
+	 * Builds the table up to limit with a linear sieve, which visits every odd composite exactly
+	 * once, as p * i with p its smallest prime factor.
+	 *
+	 * @param limit
+	 * @param fallback  strategy for inputs above limit
+	 * @throws IllegalArgumentException if limit < 2 or limit > MAX_LIMIT
+	 */
+	public SmallestPrimeFactorTable(int limit, FactorizationStrategy fallback) throws IllegalArgumentException
+	{
+		if (limit < 2 || limit > MAX_LIMIT)
+			throw new IllegalArgumentException("limit out of range");
+
+		long start = System.nanoTime();
+		this.limit = limit;
+		this.fallback = fallback;
+
+		int root = (int) PollardRho.squareRoot(limit);
+		int[] primes = PrimeTable.atLeast(Math.max(root, 2)).primes();
+		int count = 0;
+		while (count + 1 < primes.length && primes[count + 1] <= root)
+			count++;
+		oddPrimes = Arrays.copyOfRange(primes, 1, count + 1);
+
+		spf = new char[(limit + 1) / 2];
+		for (int i = 3; i <= limit / 3; i += 2)
+		{
+			int s = spf[i >>> 1];
+			int last = s == 0 ? oddPrimes.length - 1 : s - 1;		// p may not exceed spf(i)
+			int max = limit / i;
+			for (int k = 0; k <= last; k++)
+			{
+				int p = oddPrimes[k];
+				if (p > max || (s == 0 && p > i))
+					break;
+				spf[(p * i) >>> 1] = (char) (k + 1);
+			}
+		}
+		buildNanos = System.nanoTime() - start;
+	}
+
+
+	/**
+	 * For n <= limit, strips the factors of 2 and then follows the table: each lookup yields the
+	 * smallest prime factor of what is left.  Larger n go to the fallback strategy.  Factors are
+	 * reported in increasing order.
+	 */
+	@Override
+	public void factor(long n, FactorConsumer out) throws IllegalArgumentException
+	{
+		if (n < 1)
+			throw new IllegalArgumentException("n is less than 1");
+		if (n > limit)
+		{
+			fallback.factor(n, out);
+			return;
+		}
+
+		int left = (int) n;
+		int twos = Integer.numberOfTrailingZeros(left);
+		if (twos > 0)
+		{
+			out.accept(2, twos);
+			left >>>= twos;
+		}
+		while (left > 1)
+		{
+			int s = spf[left >>> 1];
+			if (s == 0)
+			{
+				out.accept(left, 1);
+				return;
+			}
+			int p = oddPrimes[s - 1];
+			int m = 0;
+			do
+			{
+				left /= p;
+				m++;
+			} while (left % p == 0);
+			out.accept(p, m);
+		}
+	}
+
+
+	/**
+	 * @return largest input answered from the table
+	 */
+	public int limit()
+	{
+		return limit;
+	}
+
+
+	/**
+	 * @return bytes held by the table and its prime list
+	 */
+	public long memoryBytes()
+	{
+		return 2L * spf.length + 4L * oddPrimes.length;
+	}
+
+
+	/**
+	 * @return time taken to build the table, in nanoseconds
+	 */
+	public long buildNanos()
+	{
+		return buildNanos;
+	}
+
+
+	/**
+	 * For instance "SmallestPrimeFactorTable[limit=100000000, 95.4 MiB, built in 812 ms]".
+	 */
+	@Override
+	public String toString()
+	{
+		return String.format("SmallestPrimeFactorTable[limit=%d, %.1f MiB, built in %d ms]",
+				limit, memoryBytes() / (double) (1 << 20), buildNanos / 1000000);
+	}
+}
@@ -0,0 +1,131 @@
+package edu.iastate.cs228.hw3;
+
+/**
+ *
+ * @author Ben Schroeder
+ *
+ */
+
+public class TrialDivision implements FactorizationStrategy
+{
+	public static final int DEFAULT_BOUND = 1 << 20;
+
+	private final int bound;
+	private final PrimeSieve sieve; 	// private table, or null to use the shared PrimeTable
+
+
+	/**
+	 * Trial division by the primes up to DEFAULT_BOUND.
+	 */
+	public TrialDivision()
+	{
+		this(DEFAULT_BOUND);
+	}
+
+
+	/**
+	 * Trial division by the primes of the shared PrimeTable, which is grown to at least bound.
+	 * Divisors past the end of the table are taken from the odd numbers.
+	 *
+	 * @param bound  smallest acceptable upper end of the prime table
+	 * @throws IllegalArgumentException if bound < 2 or bound > PrimeTable.MAX_BOUND
+	 */
+	public TrialDivision(int bound) throws IllegalArgumentException
+	{
+		if (bound < 2)
+			throw new IllegalArgumentException("bound is less than 2");
+		PrimeTable.atLeast(bound);
+		this.bound = bound;
+		this.sieve = null;
+	}
+
+
+	/**
+	 * @param sieve  private prime table to draw divisors from
+	 */
+	public TrialDivision(PrimeSieve sieve)
+	{
+		this.bound = sieve.bound();
+		this.sieve = sieve;
+	}
+
+
+	/**
+	 * Divides out the primes in increasing order and stops as soon as p * p exceeds the cofactor
+	 * that is left, which is then either 1 or a prime.  A cofactor beyond the table is also
+	 * tested for primality whenever it shrinks, so that a large prime is not searched to its
+	 * square root.  Factors are reported in increasing order.
+	 */
+	@Override
+	public void factor(long n, FactorConsumer out) throws IllegalArgumentException
+	{
+		if (n < 1)
+			throw new IllegalArgumentException("n is less than 1");
+
+		long left = n;
+		PrimeSieve table = sieve();
+		int[] primes = table.primes();
+
+		if (left > table.bound() && Primality.isPrime(left))
+		{
+			out.accept(left, 1);
+			return;
+		}
+
+		for (int i = 0; i < primes.length; i++)
+		{
+			long p = primes[i];
+			if (p * p > left)
+			{
+				if (left > 1)
+					out.accept(left, 1);
+				return;
+			}
+			if (left % p == 0)
+			{
+				int m = 0;
+				do
+				{
+					left /= p;
+					m++;
+				} while (left % p == 0);
+				out.accept(p, m);
+				if (left > table.bound() && Primality.isPrime(left))
+				{
+					out.accept(left, 1);
+					return;
+				}
+			}
+		}
+
+		// The table ran out before reaching sqrt(left).
+		for (long d = (primes[primes.length - 1] + 1L) | 1; d <= left / d; d += 2)
+		{
+			if ((d & 0x1FFFF) == 1) 		// every 2^16 divisors
+				FactorizationStrategy.checkCancelled();
+			if (left % d == 0)
+			{
+				int m = 0;
+				do
+				{
+					left /= d;
+					m++;
+				} while (left % d == 0);
+				out.accept(d, m);
+				if (Primality.isPrime(left))
+					break;
+			}
+		}
+		if (left > 1)
+			out.accept(left, 1);
+	}
+
+
+	/**
+	 * @return prime table used by this strategy
+	 */
+	public PrimeSieve sieve()
+	{
+		return sieve != null ? sieve : PrimeTable.atLeast(bound);
+	}
+}